@@ -0,0 +1,16 @@
+package com.courseplatform.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseRatingUpdate {
+    private Long courseId;
+    private Double averageRating;
+    private Integer totalRatings;
+}
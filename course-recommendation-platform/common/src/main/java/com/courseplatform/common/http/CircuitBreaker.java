@@ -0,0 +1,61 @@
+package com.courseplatform.common.http;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Opens after failureThreshold consecutive failures and rejects calls for openDuration,
+// then lets a single trial call through whose outcome closes or re-opens the circuit
+public class CircuitBreaker {
+    
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    // 0 while closed, otherwise the System.nanoTime() at which the circuit opened
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicInteger trialInFlight = new AtomicInteger();
+    
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+    
+    public boolean tryAcquire() {
+        long opened = openedAt.get();
+        if (opened == 0) {
+            return true;
+        }
+        if (System.nanoTime() - opened < openNanos) {
+            return false;
+        }
+        return trialInFlight.compareAndSet(0, 1);
+    }
+    
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        openedAt.set(0);
+        trialInFlight.set(0);
+    }
+    
+    public void onFailure() {
+        if (trialInFlight.get() == 1 || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt.set(System.nanoTime());
+            trialInFlight.set(0);
+        }
+    }
+    
+    // Gives back a trial slot that was acquired but never used for a call
+    public void releaseTrial() {
+        trialInFlight.set(0);
+    }
+    
+    public State getState() {
+        long opened = openedAt.get();
+        if (opened == 0) {
+            return State.CLOSED;
+        }
+        return System.nanoTime() - opened < openNanos ? State.OPEN : State.HALF_OPEN;
+    }
+}
@@ -0,0 +1,91 @@
+package com.courseplatform.common.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Bulkhead, circuit breaker and latency histogram for every call to one target service
+public class ResilientRequestInterceptor implements ClientHttpRequestInterceptor {
+    
+    private final String target;
+    private final ServiceClientProperties properties;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    
+    public ResilientRequestInterceptor(String target, ServiceClientProperties properties, MeterRegistry meterRegistry) {
+        this.target = target;
+        this.properties = properties;
+        this.bulkhead = new Semaphore(properties.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration());
+        this.meterRegistry = meterRegistry;
+        
+        Gauge.builder("service.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tag("target", target)
+                .register(meterRegistry);
+        Gauge.builder("service.client.circuit.open", circuitBreaker,
+                        breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!circuitBreaker.tryAcquire()) {
+            record("rejected", 0);
+            throw new ServiceCallRejectedException("Circuit open for " + target);
+        }
+        
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            // Not the target's fault, so give the trial slot back without counting a failure
+            circuitBreaker.releaseTrial();
+            record("rejected", 0);
+            throw new ServiceCallRejectedException("Too many concurrent calls to " + target);
+        }
+        
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            if (response.getStatusCode().is5xxServerError()) {
+                circuitBreaker.onFailure();
+                record("server_error", System.nanoTime() - start);
+            } else {
+                circuitBreaker.onSuccess();
+                record("success", System.nanoTime() - start);
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            circuitBreaker.onFailure();
+            record("io_error", System.nanoTime() - start);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+    
+    private void record(String outcome, long nanos) {
+        Timer.builder("service.client.requests")
+                .description("Latency of calls to other platform services")
+                .tag("target", target)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
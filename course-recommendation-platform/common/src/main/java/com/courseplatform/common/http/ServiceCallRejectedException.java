@@ -0,0 +1,8 @@
+package com.courseplatform.common.http;
+
+public class ServiceCallRejectedException extends RuntimeException {
+    
+    public ServiceCallRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.courseplatform.common.http;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class ServiceClientProperties {
+    private String url;
+    
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    
+    private Duration readTimeout = Duration.ofSeconds(2);
+    
+    // Bulkhead: calls beyond this limit wait up to maxWait for a permit, then fail fast
+    private int maxConcurrentCalls = 20;
+    
+    private Duration maxWait = Duration.ofMillis(100);
+    
+    // Circuit breaker: consecutive failures that open the circuit, and how long it stays open
+    private int failureThreshold = 5;
+    
+    private Duration openDuration = Duration.ofSeconds(10);
+}
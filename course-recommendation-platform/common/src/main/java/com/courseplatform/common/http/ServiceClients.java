@@ -0,0 +1,33 @@
+package com.courseplatform.common.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.net.http.HttpClient;
+
+public final class ServiceClients {
+    
+    private ServiceClients() {
+    }
+    
+    // One pooled keep-alive HttpClient per target, with the target's timeouts, bulkhead and circuit breaker
+    public static RestTemplate restTemplate(String target, ServiceClientProperties properties, MeterRegistry meterRegistry) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .build();
+        
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        if (properties.getUrl() != null) {
+            // Relative paths resolve against the target; absolute URLs are used as-is
+            restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(properties.getUrl()));
+        }
+        restTemplate.getInterceptors().add(new ResilientRequestInterceptor(target, properties, meterRegistry));
+        return restTemplate;
+    }
+}
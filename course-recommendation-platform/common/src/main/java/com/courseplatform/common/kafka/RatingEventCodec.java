@@ -0,0 +1,118 @@
+package com.courseplatform.common.kafka;
+
+import com.courseplatform.common.dto.RatingEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary wire format for {@link RatingEvent}.
+ *
+ * <pre>
+ * magic     1 byte   0xC5
+ * version   1 byte   schema version, currently 1
+ * flags     1 byte   bit 0: id present, bit 1: timestamp present
+ * id        8 bytes
+ * userId    8 bytes
+ * courseId  8 bytes
+ * rating    1 byte
+ * timestamp 8 bytes  epoch millis, LocalDateTime read as UTC wall-clock time
+ * comment   4-byte length (-1 for null) followed by UTF-8 bytes
+ * </pre>
+ *
+ * Plain JDK code with no dependencies so both the Spring services and the Ktor
+ * service can use it.
+ */
+public final class RatingEventCodec {
+    
+    public static final byte MAGIC = (byte) 0xC5;
+    public static final byte VERSION = 1;
+    
+    private static final int FLAG_ID = 1;
+    private static final int FLAG_TIMESTAMP = 1 << 1;
+    private static final int FIXED_SIZE = 3 + 8 + 8 + 8 + 1 + 8 + 4;
+    
+    private RatingEventCodec() {
+    }
+    
+    public static byte[] encode(RatingEvent event) {
+        byte[] comment = event.getComment() != null
+                ? event.getComment().getBytes(StandardCharsets.UTF_8)
+                : null;
+        
+        int flags = 0;
+        if (event.getId() != null) {
+            flags |= FLAG_ID;
+        }
+        if (event.getTimestamp() != null) {
+            flags |= FLAG_TIMESTAMP;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + (comment != null ? comment.length : 0));
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) flags);
+        buffer.putLong(event.getId() != null ? event.getId() : 0L);
+        buffer.putLong(event.getUserId());
+        buffer.putLong(event.getCourseId());
+        buffer.put(event.getRating().byteValue());
+        buffer.putLong(event.getTimestamp() != null
+                ? event.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli()
+                : 0L);
+        if (comment != null) {
+            buffer.putInt(comment.length);
+            buffer.put(comment);
+        } else {
+            buffer.putInt(-1);
+        }
+        return buffer.array();
+    }
+    
+    public static RatingEvent decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary RatingEvent payload");
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.get();
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported RatingEvent schema version: " + version);
+        }
+        
+        int flags = buffer.get();
+        long id = buffer.getLong();
+        long userId = buffer.getLong();
+        long courseId = buffer.getLong();
+        int rating = buffer.get();
+        long epochMillis = buffer.getLong();
+        int commentLength = buffer.getInt();
+        if (commentLength < -1 || commentLength > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt RatingEvent payload: comment length " + commentLength
+                    + " with " + buffer.remaining() + " bytes left");
+        }
+        String comment = null;
+        if (commentLength >= 0) {
+            comment = new String(data, buffer.position(), commentLength, StandardCharsets.UTF_8);
+        }
+        
+        return RatingEvent.builder()
+                .id((flags & FLAG_ID) != 0 ? id : null)
+                .userId(userId)
+                .courseId(courseId)
+                .rating(rating)
+                .comment(comment)
+                .timestamp((flags & FLAG_TIMESTAMP) != 0
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC)
+                        : null)
+                .build();
+    }
+    
+    // JSON payloads start with '{' or whitespace, never with the magic byte
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= FIXED_SIZE && data[0] == MAGIC;
+    }
+}
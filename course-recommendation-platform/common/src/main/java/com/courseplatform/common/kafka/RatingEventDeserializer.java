@@ -0,0 +1,44 @@
+package com.courseplatform.common.kafka;
+
+import com.courseplatform.common.dto.RatingEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads binary {@link RatingEventCodec} payloads and falls back to JSON for
+ * messages written before the binary format was introduced.
+ */
+public class RatingEventDeserializer implements Deserializer<RatingEvent> {
+    
+    private ObjectMapper objectMapper;
+    
+    @Override
+    public RatingEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (RatingEventCodec.isBinary(data)) {
+                return RatingEventCodec.decode(data);
+            }
+            return jsonMapper().readValue(data, RatingEvent.class);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to deserialize RatingEvent", e);
+        }
+    }
+    
+    // Only built the first time a legacy JSON message shows up
+    private ObjectMapper jsonMapper() {
+        if (objectMapper == null) {
+            objectMapper = new ObjectMapper()
+                    .registerModule(new JavaTimeModule())
+                    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        }
+        return objectMapper;
+    }
+}
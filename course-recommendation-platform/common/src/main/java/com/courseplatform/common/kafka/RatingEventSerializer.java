@@ -0,0 +1,12 @@
+package com.courseplatform.common.kafka;
+
+import com.courseplatform.common.dto.RatingEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class RatingEventSerializer implements Serializer<RatingEvent> {
+    
+    @Override
+    public byte[] serialize(String topic, RatingEvent data) {
+        return data != null ? RatingEventCodec.encode(data) : null;
+    }
+}
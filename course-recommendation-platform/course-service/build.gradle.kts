@@ -13,6 +13,9 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     
+    // Cache
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    
     // Database
     runtimeOnly("org.postgresql:postgresql")
     
@@ -28,3 +31,21 @@ dependencies {
 tasks.named<org.springframework.boot.gradle.tasks.bundling.BootJar>("bootJar") {
     archiveFileName.set("course-service.jar")
 }
+
+tasks.register<JavaExec>("searchBenchmark") {
+    group = "verification"
+    description = "Compares indexed BM25 course search with the LIKE query over a generated catalog"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("com.courseplatform.courseservice.search.CourseSearchBenchmark")
+    systemProperties(System.getProperties().filterKeys { it in setOf("courses", "queries") }
+        .mapKeys { it.key.toString() })
+}
+
+tasks.register<JavaExec>("suggestBenchmark") {
+    group = "verification"
+    description = "Measures autocomplete latency percentiles over a generated course catalog"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("com.courseplatform.courseservice.search.CourseSuggestBenchmark")
+    systemProperties(System.getProperties().filterKeys { it in setOf("courses", "queries") }
+        .mapKeys { it.key.toString() })
+}
@@ -1,5 +1,9 @@
 package com.courseplatform.courseservice.config;
 
+import com.courseplatform.common.http.ServiceClientProperties;
+import com.courseplatform.common.http.ServiceClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -14,8 +18,14 @@ import java.util.List;
 public class WebConfig {
     
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @ConfigurationProperties(prefix = "services.user-service")
+    public ServiceClientProperties userServiceClientProperties() {
+        return new ServiceClientProperties();
+    }
+    
+    @Bean
+    public RestTemplate userServiceRestTemplate(ServiceClientProperties userServiceClientProperties, MeterRegistry meterRegistry) {
+        return ServiceClients.restTemplate("user-service", userServiceClientProperties, meterRegistry);
     }
     
     @Bean
@@ -24,6 +34,7 @@ public class WebConfig {
         config.setAllowedOrigins(List.of("*"));
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
+        config.setExposedHeaders(List.of("ETag", "X-Next-Cursor", "X-Next-Offset", "X-Total-Count"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
@@ -1,6 +1,14 @@
 package com.courseplatform.courseservice.controller;
 
 import com.courseplatform.common.dto.CourseDTO;
+import com.courseplatform.common.dto.CourseRatingUpdate;
+import com.courseplatform.courseservice.dto.CourseBatchResponse;
+import com.courseplatform.courseservice.dto.CoursePage;
+import com.courseplatform.courseservice.dto.CourseSearchIndexStats;
+import com.courseplatform.courseservice.dto.CourseSearchResult;
+import com.courseplatform.courseservice.dto.CourseSuggestion;
+import com.courseplatform.courseservice.service.CourseCache;
+import com.courseplatform.courseservice.service.CourseIndexService;
 import com.courseplatform.courseservice.service.CourseService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/courses")
@@ -16,16 +25,35 @@ import java.util.List;
 @Slf4j
 public class CourseController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NEXT_OFFSET_HEADER = "X-Next-Offset";
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    
     private final CourseService courseService;
+    private final CourseIndexService courseIndexService;
     
     @GetMapping
-    public ResponseEntity<List<CourseDTO>> getAllCourses() {
-        return ResponseEntity.ok(courseService.getAllCourses());
+    public ResponseEntity<? extends List<?>> getCourses(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return pageResponse(courseService.getCourseFields(after, limit, sort, fields));
+        }
+        return pageResponse(courseService.getCourses(after, limit, sort));
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<CourseDTO> getCourseById(@PathVariable Long id) {
-        return ResponseEntity.ok(courseService.getCourseById(id));
+        return versioned(courseService.getVersionedCourse(id));
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<CourseBatchResponse<Object>> getCoursesByIds(
+            @RequestBody List<Long> ids,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(courseService.getCoursesByIds(ids, fields));
     }
     
     @PostMapping
@@ -50,22 +78,51 @@ public class CourseController {
     
     @GetMapping("/category/{category}")
     public ResponseEntity<List<CourseDTO>> getCoursesByCategory(@PathVariable String category) {
-        return ResponseEntity.ok(courseService.getCoursesByCategory(category));
+        return versioned(courseService.getVersionedCoursesByCategory(category));
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<CourseDTO>> searchCourses(@RequestParam String keyword) {
-        return ResponseEntity.ok(courseService.searchCourses(keyword));
+    public ResponseEntity<List<CourseDTO>> searchCourses(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit) {
+        CourseSearchResult result = courseService.searchCourses(keyword, offset, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(result.getTotal()));
+        if (result.getNextOffset() != null) {
+            response.header(NEXT_OFFSET_HEADER, result.getNextOffset().toString());
+        }
+        return response.body(result.getItems());
+    }
+    
+    @GetMapping("/suggest")
+    public ResponseEntity<List<CourseSuggestion>> suggestCourses(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(courseIndexService.suggest(prefix, limit));
+    }
+    
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<CourseSearchIndexStats> rebuildSearchIndex() {
+        log.info("Rebuilding course search index");
+        return ResponseEntity.ok(courseIndexService.rebuild());
+    }
+    
+    @GetMapping("/search/stats")
+    public ResponseEntity<CourseSearchIndexStats> getSearchIndexStats() {
+        return ResponseEntity.ok(courseIndexService.getStats());
     }
     
     @GetMapping("/top-rated")
-    public ResponseEntity<List<CourseDTO>> getTopRatedCourses() {
-        return ResponseEntity.ok(courseService.getTopRatedCourses());
+    public ResponseEntity<List<CourseDTO>> getTopRatedCourses(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer k) {
+        return ResponseEntity.ok(courseService.getTopRatedCourses(category, k));
     }
     
     @GetMapping("/categories")
     public ResponseEntity<List<String>> getAllCategories() {
-        return ResponseEntity.ok(courseService.getAllCategories());
+        return versioned(courseService.getVersionedCategories());
     }
     
     @PutMapping("/{id}/rating")
@@ -76,4 +133,27 @@ public class CourseController {
         courseService.updateCourseRating(id, averageRating, totalRatings);
         return ResponseEntity.ok().build();
     }
+    
+    @PutMapping("/ratings")
+    public ResponseEntity<Map<String, Integer>> updateCourseRatings(@RequestBody List<CourseRatingUpdate> updates) {
+        log.info("Updating course ratings in batch: size={}", updates.size());
+        int updated = courseService.updateCourseRatings(updates);
+        return ResponseEntity.ok(Map.of(
+                "requested", updates.size(),
+                "updated", updated
+        ));
+    }
+    
+    // Spring answers 304 without a body when the request's If-None-Match matches this ETag
+    private <T> ResponseEntity<T> versioned(CourseCache.Entry<T> entry) {
+        return ResponseEntity.ok().eTag(entry.etag()).body(entry.value());
+    }
+    
+    private <T> ResponseEntity<List<T>> pageResponse(CoursePage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getItems());
+    }
 }
@@ -0,0 +1,19 @@
+package com.courseplatform.courseservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseBatchResponse<T> {
+    // Found courses in the order their ids were requested, each id once
+    private List<T> items;
+    // Requested ids with no course
+    private List<Long> missing;
+}
@@ -0,0 +1,18 @@
+package com.courseplatform.courseservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoursePage<T> {
+    private List<T> items;
+    // Id to pass as "after" for the next page, null on the last page
+    private Long nextCursor;
+}
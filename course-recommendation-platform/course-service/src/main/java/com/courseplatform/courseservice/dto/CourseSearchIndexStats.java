@@ -0,0 +1,21 @@
+package com.courseplatform.courseservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseSearchIndexStats {
+    private int courses;
+    // Distinct terms across titles, instructors and descriptions
+    private int terms;
+    // Courses in the autocomplete tree
+    private int suggestCourses;
+    // Courses ranked in the per-category top-rated lists
+    private int leaderboardCourses;
+    private long lastRebuildMs;
+}
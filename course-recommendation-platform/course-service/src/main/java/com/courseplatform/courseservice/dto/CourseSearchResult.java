@@ -0,0 +1,22 @@
+package com.courseplatform.courseservice.dto;
+
+import com.courseplatform.common.dto.CourseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseSearchResult {
+    // Best match first
+    private List<CourseDTO> items;
+    // Courses matching at least one keyword term
+    private int total;
+    // Offset of the next page, null on the last page
+    private Integer nextOffset;
+}
@@ -0,0 +1,4 @@
+package com.courseplatform.courseservice.dto;
+
+public record CourseSuggestion(long id, String title, String instructor, double averageRating, int totalRatings) {
+}
@@ -0,0 +1,6 @@
+package com.courseplatform.courseservice.dto;
+
+// Description-free view of a course, read with a constructor projection so the TEXT column is never fetched
+public record CourseSummary(Long id, String title, String category, String instructor,
+                            Double averageRating, Integer totalRatings) {
+}
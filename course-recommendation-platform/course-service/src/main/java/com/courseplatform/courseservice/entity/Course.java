@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "courses")
+@Table(name = "courses", indexes = {
+    @Index(name = "idx_courses_title_id", columnList = "title, id"),
+    @Index(name = "idx_courses_average_rating", columnList = "average_rating DESC, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,41 @@
+package com.courseplatform.courseservice.repository;
+
+import com.courseplatform.common.dto.CourseRatingUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CourseBatchRepository {
+    
+    private static final String UPDATE_RATING_SQL =
+            "UPDATE courses SET average_rating = ?, total_ratings = ?, updated_at = ? WHERE id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${course.batch.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+    
+    // Returns how many courses exist and were updated; unknown ids are skipped
+    public int updateRatings(List<CourseRatingUpdate> updates) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_RATING_SQL, updates, jdbcBatchSize, (ps, update) -> {
+            ps.setDouble(1, update.getAverageRating());
+            ps.setInt(2, update.getTotalRatings());
+            ps.setTimestamp(3, now);
+            ps.setLong(4, update.getCourseId());
+        });
+        return Arrays.stream(counts)
+                .flatMapToInt(Arrays::stream)
+                .map(count -> Math.max(count, 0))
+                .sum();
+    }
+}
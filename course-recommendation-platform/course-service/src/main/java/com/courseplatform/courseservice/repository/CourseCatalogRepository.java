@@ -0,0 +1,66 @@
+package com.courseplatform.courseservice.repository;
+
+import com.courseplatform.courseservice.dto.CourseSummary;
+import com.courseplatform.courseservice.entity.Course;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Keyset-paged catalog reads. The cursor is always the id of the last course seen; for other orderings
+// its sort value is looked up by primary key, so a page costs two index reads instead of an OFFSET scan.
+@Repository
+@RequiredArgsConstructor
+public class CourseCatalogRepository {
+    
+    private static final String SUMMARY_SELECT =
+            "SELECT new com.courseplatform.courseservice.dto.CourseSummary(" +
+            "c.id, c.title, c.category, c.instructor, c.averageRating, c.totalRatings) FROM Course c";
+    
+    private static final String COURSE_SELECT = "SELECT c FROM Course c";
+    
+    private final EntityManager entityManager;
+    
+    public List<CourseSummary> findSummaries(CourseSort sort, Long afterId, int limit) {
+        return find(SUMMARY_SELECT, CourseSummary.class, sort, afterId, limit);
+    }
+    
+    public List<Course> findCourses(CourseSort sort, Long afterId, int limit) {
+        return find(COURSE_SELECT, Course.class, sort, afterId, limit);
+    }
+    
+    private <T> List<T> find(String select, Class<T> type, CourseSort sort, Long afterId, int limit) {
+        String key = sort.expression();
+        String direction = sort.isDescending() ? "DESC" : "ASC";
+        StringBuilder jpql = new StringBuilder(select);
+        Object afterValue = null;
+        
+        if (afterId != null && sort.isById()) {
+            jpql.append(" WHERE c.id ").append(sort.isDescending() ? "<" : ">").append(" :afterId");
+        } else if (afterId != null) {
+            // If the cursor course changed since the previous page, the next page starts from its new position
+            afterValue = entityManager.createQuery("SELECT " + key + " FROM Course c WHERE c.id = :id", Object.class)
+                    .setParameter("id", afterId)
+                    .getResultStream()
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Course not found: " + afterId));
+            jpql.append(" WHERE ").append(key).append(sort.isDescending() ? " < " : " > ").append(":afterValue")
+                    .append(" OR (").append(key).append(" = :afterValue AND c.id > :afterId)");
+        }
+        jpql.append(" ORDER BY ").append(key).append(' ').append(direction);
+        if (!sort.isById()) {
+            jpql.append(", c.id ASC");
+        }
+        
+        TypedQuery<T> query = entityManager.createQuery(jpql.toString(), type).setMaxResults(limit);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        if (afterValue != null) {
+            query.setParameter("afterValue", afterValue);
+        }
+        return query.getResultList();
+    }
+}
@@ -1,28 +1,36 @@
 package com.courseplatform.courseservice.repository;
 
 import com.courseplatform.courseservice.entity.Course;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
     
-    List<Course> findByCategory(String category);
+    List<Course> findByCategoryOrderByIdAsc(String category);
     
     List<Course> findByInstructor(String instructor);
     
-    @Query("SELECT c FROM Course c WHERE LOWER(c.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(c.description) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Course> searchByKeyword(@Param("keyword") String keyword);
-    
     List<Course> findByAverageRatingGreaterThanEqual(Double rating);
     
-    @Query("SELECT c FROM Course c ORDER BY c.averageRating DESC")
-    List<Course> findTopRatedCourses();
+    // Served by idx_courses_average_rating, so only the first page of the index is read
+    @Query("SELECT c FROM Course c ORDER BY c.averageRating DESC, c.id ASC")
+    List<Course> findTopRatedCourses(Pageable pageable);
     
-    @Query("SELECT DISTINCT c.category FROM Course c")
+    @Query("SELECT DISTINCT c.category FROM Course c ORDER BY c.category")
     List<String> findAllCategories();
+    
+    @Query("SELECT COUNT(c) AS courses, MAX(c.updatedAt) AS latestUpdate FROM Course c")
+    CatalogVersion findCatalogVersion();
+    
+    interface CatalogVersion {
+        long getCourses();
+        
+        LocalDateTime getLatestUpdate();
+    }
 }
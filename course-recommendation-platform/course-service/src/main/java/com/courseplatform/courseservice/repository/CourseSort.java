@@ -0,0 +1,45 @@
+package com.courseplatform.courseservice.repository;
+
+// Catalog orderings; every one is made unique by id so keyset pages never skip or repeat a course
+public enum CourseSort {
+    ID("id", "c.id", false),
+    ID_DESC("-id", "c.id", true),
+    TITLE("title", "c.title", false),
+    TITLE_DESC("-title", "c.title", true),
+    AVERAGE_RATING("averageRating", "c.averageRating", false),
+    AVERAGE_RATING_DESC("-averageRating", "c.averageRating", true);
+    
+    private final String param;
+    private final String expression;
+    private final boolean descending;
+    
+    CourseSort(String param, String expression, boolean descending) {
+        this.param = param;
+        this.expression = expression;
+        this.descending = descending;
+    }
+    
+    public String expression() {
+        return expression;
+    }
+    
+    public boolean isDescending() {
+        return descending;
+    }
+    
+    public boolean isById() {
+        return this == ID || this == ID_DESC;
+    }
+    
+    public static CourseSort parse(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return ID;
+        }
+        for (CourseSort value : values()) {
+            if (value.param.equals(sort.trim())) {
+                return value;
+            }
+        }
+        throw new RuntimeException("sort must be one of id, title, averageRating, optionally prefixed with '-'");
+    }
+}
@@ -0,0 +1,113 @@
+package com.courseplatform.courseservice.search;
+
+import com.courseplatform.courseservice.dto.CourseSummary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Courses of each category kept in rating order, so the top k of a category is read off the front of
+ * its set in O(k) without a query.
+ *
+ * Every course is kept, not just the current top k: ratings also go down, and a bounded heap could not
+ * tell which course moves up into a slot freed that way without going back to the database.
+ */
+public class CourseLeaderboard {
+    
+    private static final Comparator<CourseSummary> RANKING = Comparator
+            .comparing(CourseSummary::averageRating, Comparator.reverseOrder())
+            .thenComparing(CourseSummary::totalRatings, Comparator.reverseOrder())
+            .thenComparing(CourseSummary::id);
+    
+    private final Map<String, NavigableSet<CourseSummary>> categories = new HashMap<>();
+    private final Map<Long, CourseSummary> courses = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public void put(Long courseId, String title, String category, String instructor,
+                    Double averageRating, Integer totalRatings) {
+        CourseSummary course = new CourseSummary(courseId, title, category, instructor,
+                averageRating != null ? averageRating : 0.0, totalRatings != null ? totalRatings : 0);
+        lock.writeLock().lock();
+        try {
+            removeLocked(courseId);
+            courses.put(courseId, course);
+            categories.computeIfAbsent(category, c -> new TreeSet<>(RANKING)).add(course);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Unknown courses are ignored; they join with their next put or rebuild
+    public void updateRating(Long courseId, Double averageRating, Integer totalRatings) {
+        lock.writeLock().lock();
+        try {
+            CourseSummary previous = courses.get(courseId);
+            if (previous != null) {
+                removeLocked(courseId);
+                CourseSummary course = new CourseSummary(courseId, previous.title(), previous.category(),
+                        previous.instructor(), averageRating != null ? averageRating : 0.0,
+                        totalRatings != null ? totalRatings : 0);
+                courses.put(courseId, course);
+                categories.computeIfAbsent(course.category(), c -> new TreeSet<>(RANKING)).add(course);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Long courseId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(courseId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public List<CourseSummary> top(String category, int k) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<CourseSummary> ranked = categories.get(category);
+            if (ranked == null) {
+                return List.of();
+            }
+            List<CourseSummary> top = new ArrayList<>(Math.min(k, ranked.size()));
+            Iterator<CourseSummary> iterator = ranked.iterator();
+            while (top.size() < k && iterator.hasNext()) {
+                top.add(iterator.next());
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return courses.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void removeLocked(Long courseId) {
+        CourseSummary previous = courses.remove(courseId);
+        if (previous == null) {
+            return;
+        }
+        NavigableSet<CourseSummary> ranked = categories.get(previous.category());
+        ranked.remove(previous);
+        if (ranked.isEmpty()) {
+            categories.remove(previous.category());
+        }
+    }
+}
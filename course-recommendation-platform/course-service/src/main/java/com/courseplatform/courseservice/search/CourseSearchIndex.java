@@ -0,0 +1,180 @@
+package com.courseplatform.courseservice.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over course title, instructor and description, ranked with BM25.
+ *
+ * Fields are folded into one document by repeating their terms: a title term counts
+ * {@value #TITLE_WEIGHT} times, an instructor term {@value #INSTRUCTOR_WEIGHT} times and a
+ * description term once, so a match in the title outranks the same match buried in a description.
+ * Reads share a lock and run concurrently; puts and removes take it exclusively.
+ */
+public class CourseSearchIndex {
+    
+    static final int TITLE_WEIGHT = 3;
+    static final int INSTRUCTOR_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+    
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    
+    // term -> course id -> weighted term frequency
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+    
+    public record Hit(long courseId, double score) {
+    }
+    
+    public record Result(List<Hit> hits, int total) {
+    }
+    
+    // Distinct terms of a course and its weighted length, kept so a put can retract the old version
+    private record Document(String[] terms, int length) {
+    }
+    
+    public void put(long courseId, String title, String description, String instructor) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTerms(frequencies, title, TITLE_WEIGHT)
+                + addTerms(frequencies, instructor, INSTRUCTOR_WEIGHT)
+                + addTerms(frequencies, description, DESCRIPTION_WEIGHT);
+        
+        lock.writeLock().lock();
+        try {
+            removeLocked(courseId);
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(courseId, frequency));
+            documents.put(courseId, new Document(frequencies.keySet().toArray(String[]::new), length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long courseId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(courseId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Scores every course matching at least one query term and keeps the best offset + limit
+    public Result search(String query, int offset, int limit) {
+        List<String> terms = tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+        
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int count = documents.size();
+            double averageLength = count > 0 ? (double) totalLength / count : 0;
+            for (String term : terms) {
+                Map<Long, Integer> matches = postings.get(term);
+                if (matches == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (count - matches.size() + 0.5) / (matches.size() + 0.5));
+                matches.forEach((courseId, frequency) -> {
+                    double lengthNorm = K1 * (1 - B + B * documents.get(courseId).length() / averageLength);
+                    scores.merge(courseId, idf * frequency * (K1 + 1) / (frequency + lengthNorm), Double::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        // Min-heap of the best offset + limit hits; equal scores fall back to the lower id first
+        int wanted = offset + limit;
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.max(1, Math.min(wanted, scores.size())),
+                (a, b) -> a.score() != b.score() ? Double.compare(a.score(), b.score()) : Long.compare(b.courseId(), a.courseId()));
+        scores.forEach((courseId, score) -> {
+            best.offer(new Hit(courseId, score));
+            if (best.size() > wanted) {
+                best.poll();
+            }
+        });
+        
+        List<Hit> ranked = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ranked.add(best.poll());
+        }
+        List<Hit> page = new ArrayList<>(Math.max(0, ranked.size() - offset));
+        for (int i = ranked.size() - 1 - offset; i >= 0; i--) {
+            page.add(ranked.get(i));
+        }
+        return new Result(page, scores.size());
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Lower-cased runs of letters and digits, so "Spring-Boot 3" becomes [spring, boot, 3].
+    // Single characters are kept: "C", "R" and version numbers are real course terms, and BM25 already
+    // scores common ones like "a" close to zero
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+    
+    private static int addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> tokens = tokenize(text);
+        tokens.forEach(token -> frequencies.merge(token, weight, Integer::sum));
+        return tokens.size() * weight;
+    }
+    
+    private void removeLocked(long courseId) {
+        Document previous = documents.remove(courseId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms()) {
+            Map<Long, Integer> matches = postings.get(term);
+            matches.remove(courseId);
+            if (matches.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= previous.length();
+    }
+}
@@ -0,0 +1,366 @@
+package com.courseplatform.courseservice.search;
+
+import com.courseplatform.courseservice.dto.CourseSuggestion;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix autocomplete over normalized course titles and instructor names.
+ *
+ * A radix tree (edges carry whole runs of characters, so there are at most two nodes per key) where
+ * every node caches its best {@code maxResults} courses, ranked by average rating, then rating count.
+ * A lookup walks the prefix and returns that cached list, so its cost depends on the prefix length,
+ * not on how many courses match. A write adjusts the caches along its own paths, and only merges a
+ * node's children again when a course drops out of a full list.
+ */
+public class CourseSuggestIndex {
+    
+    private final int maxResults;
+    private final Node root = new Node("");
+    private final Map<Long, CourseSuggestion> courses = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private static final CourseSuggestion[] NONE = new CourseSuggestion[0];
+    
+    private static final Comparator<CourseSuggestion> RANKING = Comparator
+            .comparingDouble(CourseSuggestion::averageRating).reversed()
+            .thenComparing(Comparator.comparingInt(CourseSuggestion::totalRatings).reversed())
+            .thenComparingLong(CourseSuggestion::id);
+    
+    public CourseSuggestIndex(int maxResults) {
+        this.maxResults = maxResults;
+    }
+    
+    public void put(long courseId, String title, String instructor, Double averageRating, Integer totalRatings) {
+        CourseSuggestion course = new CourseSuggestion(courseId, title, instructor,
+                averageRating != null ? averageRating : 0.0, totalRatings != null ? totalRatings : 0);
+        lock.writeLock().lock();
+        try {
+            CourseSuggestion previous = courses.get(courseId);
+            if (previous != null && previous.title().equals(title) && previous.instructor().equals(instructor)) {
+                courses.put(courseId, course);
+                keys(course).forEach(key -> rerank(path(key), course, true));
+                return;
+            }
+            if (previous != null) {
+                removeLocked(previous);
+            }
+            courses.put(courseId, course);
+            keys(course).forEach(key -> insert(key, course));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Moves the course within the rankings of every prefix it matches; unknown courses are ignored
+    public void updateRating(long courseId, Double averageRating, Integer totalRatings) {
+        lock.writeLock().lock();
+        try {
+            CourseSuggestion previous = courses.get(courseId);
+            if (previous == null) {
+                return;
+            }
+            CourseSuggestion course = new CourseSuggestion(courseId, previous.title(), previous.instructor(),
+                    averageRating != null ? averageRating : 0.0, totalRatings != null ? totalRatings : 0);
+            courses.put(courseId, course);
+            keys(course).forEach(key -> rerank(path(key), course, true));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long courseId) {
+        lock.writeLock().lock();
+        try {
+            CourseSuggestion previous = courses.get(courseId);
+            if (previous != null) {
+                removeLocked(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public List<CourseSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int matched = 0;
+            while (matched < key.length()) {
+                node = node.child(key.charAt(matched));
+                if (node == null) {
+                    return List.of();
+                }
+                // The prefix may stop part way along an edge
+                int length = Math.min(node.label.length(), key.length() - matched);
+                if (!node.label.regionMatches(0, key, matched, length)) {
+                    return List.of();
+                }
+                matched += length;
+            }
+            List<CourseSuggestion> suggestions = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int i = 0; i < node.top.length && i < limit; i++) {
+                suggestions.add(node.top[i]);
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return courses.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Lower case without accents, with every run of punctuation and spaces folded into one space
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && key.length() > 0) {
+                    key.append(' ');
+                }
+                key.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+    
+    private List<String> keys(CourseSuggestion course) {
+        String title = normalize(course.title());
+        String instructor = normalize(course.instructor());
+        return title.equals(instructor) ? List.of(title) : List.of(title, instructor);
+    }
+    
+    private void insert(String key, CourseSuggestion course) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = node.child(key.charAt(matched));
+            if (child == null) {
+                child = new Node(key.substring(matched));
+                node.addChild(child);
+                matched = key.length();
+            } else {
+                int common = commonPrefix(child.label, key, matched);
+                if (common < child.label.length()) {
+                    child = split(node, child, common);
+                }
+                matched += common;
+            }
+            path.add(child);
+            node = child;
+        }
+        node.terminals.add(course.id());
+        rerank(path, course, true);
+    }
+    
+    private void removeLocked(CourseSuggestion course) {
+        for (String key : keys(course)) {
+            List<Node> path = path(key);
+            Node last = path.get(path.size() - 1);
+            last.terminals.remove(Long.valueOf(course.id()));
+            // Prune nodes left with nothing below them, then re-rank what remains
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node node = path.get(i);
+                if (node.terminals.isEmpty() && node.children.isEmpty()) {
+                    path.get(i - 1).removeChild(node);
+                    path.remove(i);
+                }
+            }
+            rerank(path, course, false);
+        }
+        // Only now, since rankings above the second key can still hold the id while the first is re-ranked
+        courses.remove(course.id());
+    }
+    
+    // Nodes from the root down to the one where the key ends; the key must already be in the tree
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            node = node.child(key.charAt(matched));
+            matched += node.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+    
+    // Deepest first, so a node that has to merge its children sees their lists already updated.
+    // present is false when the course no longer belongs below the path.
+    private void rerank(List<Node> path, CourseSuggestion course, boolean present) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            CourseSuggestion[] top = node.top;
+            int at = indexOf(top, course.id());
+            if (at >= 0) {
+                boolean full = top.length == maxResults;
+                top = without(top, at);
+                // Some course outside the list may now belong in the freed slot
+                if (full && (!present || top.length == 0 || RANKING.compare(course, top[top.length - 1]) > 0)) {
+                    node.top = merge(node);
+                    continue;
+                }
+            }
+            node.top = present ? with(top, course) : top;
+        }
+    }
+    
+    private CourseSuggestion[] merge(Node node) {
+        List<CourseSuggestion> candidates = new ArrayList<>();
+        node.terminals.forEach(id -> candidates.add(courses.get(id)));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(RANKING);
+        List<CourseSuggestion> best = new ArrayList<>(maxResults);
+        for (CourseSuggestion candidate : candidates) {
+            // A course indexed under both its title and instructor reaches a shared ancestor twice
+            if (indexOf(best, candidate.id()) < 0) {
+                best.add(candidate);
+                if (best.size() == maxResults) {
+                    break;
+                }
+            }
+        }
+        return best.toArray(NONE);
+    }
+    
+    // Inserts in rank order and drops whatever falls past maxResults
+    private CourseSuggestion[] with(CourseSuggestion[] top, CourseSuggestion course) {
+        int at = 0;
+        while (at < top.length && RANKING.compare(top[at], course) < 0) {
+            at++;
+        }
+        if (at >= maxResults) {
+            return top;
+        }
+        CourseSuggestion[] next = new CourseSuggestion[Math.min(top.length + 1, maxResults)];
+        System.arraycopy(top, 0, next, 0, at);
+        next[at] = course;
+        System.arraycopy(top, at, next, at + 1, next.length - at - 1);
+        return next;
+    }
+    
+    private static CourseSuggestion[] without(CourseSuggestion[] top, int at) {
+        CourseSuggestion[] next = new CourseSuggestion[top.length - 1];
+        System.arraycopy(top, 0, next, 0, at);
+        System.arraycopy(top, at + 1, next, at, next.length - at);
+        return next;
+    }
+    
+    private static int indexOf(CourseSuggestion[] top, long courseId) {
+        for (int i = 0; i < top.length; i++) {
+            if (top[i].id() == courseId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int indexOf(List<CourseSuggestion> top, long courseId) {
+        for (int i = 0; i < top.size(); i++) {
+            if (top.get(i).id() == courseId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Splits child's edge after `at` characters and returns the new node holding the shared part
+    private static Node split(Node parent, Node child, int at) {
+        Node shared = new Node(child.label.substring(0, at));
+        parent.removeChild(child);
+        child.label = child.label.substring(at);
+        shared.addChild(child);
+        shared.top = child.top;
+        parent.addChild(shared);
+        return shared;
+    }
+    
+    private static int commonPrefix(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+    
+    private static final class Node {
+        
+        private String label;
+        // Sorted by the first character of their labels, which are distinct among siblings
+        private final List<Node> children = new ArrayList<>(2);
+        private final List<Long> terminals = new ArrayList<>(1);
+        private CourseSuggestion[] top = NONE;
+        
+        Node(String label) {
+            this.label = label;
+        }
+        
+        Node child(char first) {
+            int index = indexOf(first);
+            return index >= 0 ? children.get(index) : null;
+        }
+        
+        void addChild(Node child) {
+            children.add(-indexOf(child.label.charAt(0)) - 1, child);
+        }
+        
+        void removeChild(Node child) {
+            children.remove(indexOf(child.label.charAt(0)));
+        }
+        
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children.get(mid).label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -low - 1;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.courseplatform.courseservice.service;
+
+import com.courseplatform.common.dto.CourseDTO;
+import com.courseplatform.courseservice.entity.Course;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Read-through cache for single courses and the category lists. Each entry carries a version built from
+// updated_at, used as the response ETag. Every course write evicts the course and all lists; other
+// instances' writes are only picked up when the TTL runs out.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourseCache {
+    
+    public static final String CATEGORIES_KEY = "categories";
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${course.cache.max-courses:100000}")
+    private long maxCourses;
+    
+    @Value("${course.cache.max-lists:1000}")
+    private long maxLists;
+    
+    @Value("${course.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    private Cache<Long, Entry<CourseDTO>> courses;
+    // CATEGORIES_KEY -> category names, category key -> courses of that category
+    private Cache<String, Entry<?>> lists;
+    
+    public record Entry<T>(T value, String etag) {
+    }
+    
+    @PostConstruct
+    void init() {
+        courses = Caffeine.newBuilder()
+                .maximumSize(maxCourses)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        lists = Caffeine.newBuilder()
+                .maximumSize(maxLists)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, courses, "courses");
+        CaffeineCacheMetrics.monitor(meterRegistry, lists, "courseLists");
+    }
+    
+    // A null from the loader (no such course) is not cached
+    public Entry<CourseDTO> getCourse(Long id, Function<Long, Entry<CourseDTO>> loader) {
+        return courses.get(id, loader);
+    }
+    
+    // Ids that are not cached are loaded together; ids the loader leaves out are absent from the result
+    public Map<Long, Entry<CourseDTO>> getCourses(Collection<Long> ids,
+                                                  Function<Set<Long>, Map<Long, Entry<CourseDTO>>> loader) {
+        return courses.getAll(ids, missing -> loader.apply(Set.copyOf(missing)));
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T> Entry<T> getList(String key, Supplier<Entry<T>> loader) {
+        return (Entry<T>) lists.get(key, k -> loader.get());
+    }
+    
+    public static String categoryKey(String category) {
+        return "category:" + category;
+    }
+    
+    public void invalidate(Long courseId) {
+        invalidateAll(List.of(courseId));
+    }
+    
+    public void invalidateAll(Collection<Long> courseIds) {
+        evict(courseIds);
+        // Evict again once the write is visible, so a read racing the commit can't re-cache the old version
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(courseIds);
+                }
+            });
+        }
+    }
+    
+    public static String version(Course course) {
+        return course.getId() + "-" + micros(course.getUpdatedAt());
+    }
+    
+    // Changes when a course joins or leaves the list or any of them is updated
+    public static String version(List<Course> courses) {
+        long latest = 0;
+        long hash = 1;
+        for (Course course : courses) {
+            latest = Math.max(latest, micros(course.getUpdatedAt()));
+            hash = 31 * hash + course.getId();
+        }
+        return courses.size() + "-" + latest + "-" + Long.toHexString(hash);
+    }
+    
+    // For lists derived from the whole catalog; changes when a course is added, removed or updated
+    public static String version(long courses, LocalDateTime latestUpdate) {
+        return courses + "-" + micros(latestUpdate);
+    }
+    
+    private void evict(Collection<Long> courseIds) {
+        courses.invalidateAll(courseIds);
+        lists.invalidateAll();
+    }
+    
+    private static long micros(LocalDateTime time) {
+        if (time == null) {
+            return 0;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,244 @@
+package com.courseplatform.courseservice.service;
+
+import com.courseplatform.common.dto.CourseRatingUpdate;
+import com.courseplatform.courseservice.dto.CourseSearchIndexStats;
+import com.courseplatform.courseservice.dto.CourseSuggestion;
+import com.courseplatform.courseservice.dto.CourseSummary;
+import com.courseplatform.courseservice.entity.Course;
+import com.courseplatform.courseservice.repository.CourseCatalogRepository;
+import com.courseplatform.courseservice.repository.CourseRepository;
+import com.courseplatform.courseservice.repository.CourseSort;
+import com.courseplatform.courseservice.search.CourseLeaderboard;
+import com.courseplatform.courseservice.search.CourseSearchIndex;
+import com.courseplatform.courseservice.search.CourseSuggestIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the in-memory course indexes (search, suggest, per-category leaderboard) in step with the courses table. Each instance only sees its own writes;
+// the periodic rebuild pulls in everything else.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourseIndexService {
+    
+    private final CourseRepository courseRepository;
+    private final CourseCatalogRepository courseCatalogRepository;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${course.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+    
+    @Value("${course.suggest.max-results:10}")
+    private int maxSuggestions;
+    
+    private volatile CourseSearchIndex index = new CourseSearchIndex();
+    private volatile CourseSuggestIndex suggestIndex;
+    private volatile CourseLeaderboard leaderboard = new CourseLeaderboard();
+    private volatile boolean rebuilding;
+    // Courses written while a rebuild was scanning; re-read from the database once the new index is live
+    private final Set<Long> writtenDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile long lastRebuildMs;
+    
+    private Timer searchTimer;
+    private Timer suggestTimer;
+    private Timer rebuildTimer;
+    
+    @PostConstruct
+    void init() {
+        suggestIndex = new CourseSuggestIndex(maxSuggestions);
+        searchTimer = Timer.builder("course.search.query")
+                .description("Time to score and rank one search query")
+                .register(meterRegistry);
+        suggestTimer = Timer.builder("course.suggest.query")
+                .description("Time to answer one autocomplete prefix")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        rebuildTimer = Timer.builder("course.search.rebuild")
+                .description("Time to rebuild the course search index from the courses table")
+                .register(meterRegistry);
+        Gauge.builder("course.search.index.courses", this, service -> service.index.size())
+                .register(meterRegistry);
+    }
+    
+    public CourseSearchIndex.Result search(String keyword, int offset, int limit) {
+        long start = System.nanoTime();
+        try {
+            return index.search(keyword, offset, limit);
+        } finally {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    public List<CourseSuggestion> suggest(String prefix, Integer limit) {
+        if (limit != null && (limit < 1 || limit > maxSuggestions)) {
+            throw new RuntimeException("limit must be between 1 and " + maxSuggestions);
+        }
+        long start = System.nanoTime();
+        try {
+            return suggestIndex.suggest(prefix, limit != null ? limit : maxSuggestions);
+        } finally {
+            suggestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    // Best k courses of a category, answered from memory
+    public List<CourseSummary> topRated(String category, int k) {
+        return leaderboard.top(category, k);
+    }
+    
+    public void recordSaved(Course course) {
+        // Copied now: the entity may change again before the transaction commits
+        Course saved = Course.builder()
+                .id(course.getId())
+                .title(course.getTitle())
+                .description(course.getDescription())
+                .category(course.getCategory())
+                .instructor(course.getInstructor())
+                .averageRating(course.getAverageRating())
+                .totalRatings(course.getTotalRatings())
+                .build();
+        afterCommit(() -> {
+            markIfRebuilding(saved.getId());
+            put(saved);
+        });
+    }
+    
+    public void recordDeleted(Long courseId) {
+        afterCommit(() -> {
+            markIfRebuilding(courseId);
+            remove(courseId);
+        });
+    }
+    
+    public void recordRatingsUpdated(List<CourseRatingUpdate> updates) {
+        afterCommit(() -> updates.forEach(update -> {
+            markIfRebuilding(update.getCourseId());
+            suggestIndex.updateRating(update.getCourseId(), update.getAverageRating(), update.getTotalRatings());
+            leaderboard.updateRating(update.getCourseId(), update.getAverageRating(), update.getTotalRatings());
+        }));
+    }
+    
+    // void, so the listener does not publish the returned stats as another application event
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+    
+    @Scheduled(initialDelayString = "${course.search.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${course.search.rebuild-interval-ms:3600000}")
+    public synchronized CourseSearchIndexStats rebuild() {
+        long start = System.nanoTime();
+        CourseSearchIndex next = new CourseSearchIndex();
+        CourseSuggestIndex nextSuggest = new CourseSuggestIndex(maxSuggestions);
+        CourseLeaderboard nextLeaderboard = new CourseLeaderboard();
+        rebuilding = true;
+        try {
+            Long after = null;
+            List<Course> batch;
+            do {
+                batch = courseCatalogRepository.findCourses(CourseSort.ID, after, rebuildBatchSize);
+                batch.forEach(course -> {
+                    next.put(course.getId(), course.getTitle(), course.getDescription(), course.getInstructor());
+                    nextSuggest.put(course.getId(), course.getTitle(), course.getInstructor(),
+                            course.getAverageRating(), course.getTotalRatings());
+                    nextLeaderboard.put(course.getId(), course.getTitle(), course.getCategory(),
+                            course.getInstructor(), course.getAverageRating(), course.getTotalRatings());
+                });
+                if (!batch.isEmpty()) {
+                    after = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == rebuildBatchSize);
+            index = next;
+            suggestIndex = nextSuggest;
+            leaderboard = nextLeaderboard;
+            reloadWrittenDuringRebuild();
+        } finally {
+            rebuilding = false;
+            writtenDuringRebuild.clear();
+        }
+        
+        long durationNanos = System.nanoTime() - start;
+        rebuildTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        lastRebuildMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        CourseSearchIndexStats stats = getStats();
+        log.info("Course search indexes rebuilt: courses={}, terms={}, suggestCourses={}, durationMs={}",
+                stats.getCourses(), stats.getTerms(), stats.getSuggestCourses(), lastRebuildMs);
+        return stats;
+    }
+    
+    public CourseSearchIndexStats getStats() {
+        CourseSearchIndex current = index;
+        return CourseSearchIndexStats.builder()
+                .courses(current.size())
+                .terms(current.termCount())
+                .suggestCourses(suggestIndex.size())
+                .leaderboardCourses(leaderboard.size())
+                .lastRebuildMs(lastRebuildMs)
+                .build();
+    }
+    
+    // Marked before touching the index, so a write that still lands in the old index is reloaded after the swap
+    private void markIfRebuilding(Long courseId) {
+        if (rebuilding) {
+            writtenDuringRebuild.add(courseId);
+        }
+    }
+    
+    private void reloadWrittenDuringRebuild() {
+        Set<Long> ids = new HashSet<>(writtenDuringRebuild);
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Course> courses = courseRepository.findAllById(ids);
+        courses.forEach(this::put);
+        List<Long> deleted = new ArrayList<>(ids);
+        deleted.removeAll(courses.stream().map(Course::getId).toList());
+        deleted.forEach(this::remove);
+    }
+    
+    private void put(Course course) {
+        index.put(course.getId(), course.getTitle(), course.getDescription(), course.getInstructor());
+        suggestIndex.put(course.getId(), course.getTitle(), course.getInstructor(),
+                course.getAverageRating(), course.getTotalRatings());
+        leaderboard.put(course.getId(), course.getTitle(), course.getCategory(), course.getInstructor(),
+                course.getAverageRating(), course.getTotalRatings());
+    }
+    
+    private void remove(Long courseId) {
+        index.remove(courseId);
+        suggestIndex.remove(courseId);
+        leaderboard.remove(courseId);
+    }
+    
+    // Only committed writes reach the index
+    private void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+}
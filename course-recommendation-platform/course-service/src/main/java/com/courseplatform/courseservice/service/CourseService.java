@@ -1,14 +1,32 @@
 package com.courseplatform.courseservice.service;
 
 import com.courseplatform.common.dto.CourseDTO;
+import com.courseplatform.common.dto.CourseRatingUpdate;
+import com.courseplatform.courseservice.dto.CourseBatchResponse;
+import com.courseplatform.courseservice.dto.CoursePage;
+import com.courseplatform.courseservice.dto.CourseSearchResult;
+import com.courseplatform.courseservice.dto.CourseSummary;
 import com.courseplatform.courseservice.entity.Course;
+import com.courseplatform.courseservice.repository.CourseBatchRepository;
+import com.courseplatform.courseservice.repository.CourseCatalogRepository;
 import com.courseplatform.courseservice.repository.CourseRepository;
+import com.courseplatform.courseservice.repository.CourseSort;
+import com.courseplatform.courseservice.search.CourseSearchIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,17 +35,104 @@ import java.util.stream.Collectors;
 public class CourseService {
     
     private final CourseRepository courseRepository;
+    private final CourseBatchRepository courseBatchRepository;
+    private final CourseCatalogRepository courseCatalogRepository;
+    private final CourseIndexService courseIndexService;
+    private final CourseCache courseCache;
     
-    public List<CourseDTO> getAllCourses() {
-        return courseRepository.findAll().stream()
+    private static final Set<String> COURSE_FIELDS = Set.of(
+            "id", "title", "description", "category", "instructor", "averageRating", "totalRatings");
+    
+    @Value("${course.batch.max-size:5000}")
+    private int maxBatchSize;
+    
+    @Value("${course.page.default-size:100}")
+    private int defaultPageSize;
+    
+    @Value("${course.page.max-size:1000}")
+    private int maxPageSize;
+    
+    @Value("${course.multi-get.max-ids:100}")
+    private int maxMultiGetIds;
+    
+    @Value("${course.top-rated.default-k:10}")
+    private int defaultTopRated;
+    
+    @Value("${course.top-rated.max-k:100}")
+    private int maxTopRated;
+    
+    // Bounds offset + limit, so deep search pages cannot make ranking keep the whole match set
+    @Value("${course.search.max-results:1000}")
+    private int maxSearchResults;
+    
+    public CoursePage<CourseDTO> getCourses(Long afterId, Integer limit, String sort) {
+        int pageSize = resolvePageSize(limit);
+        List<CourseDTO> rows = courseCatalogRepository.findCourses(CourseSort.parse(sort), afterId, pageSize + 1).stream()
                 .map(this::mapToDTO)
-                .collect(Collectors.toList());
+                .toList();
+        return toPage(rows, pageSize);
+    }
+    
+    // Sparse fieldset: descriptions are only read from the database when asked for
+    public CoursePage<Map<String, Object>> getCourseFields(Long afterId, Integer limit, String sort, String fields) {
+        Set<String> selected = parseFields(fields);
+        int pageSize = resolvePageSize(limit);
+        CourseSort order = CourseSort.parse(sort);
+        List<CourseDTO> rows = selected.contains("description")
+                ? courseCatalogRepository.findCourses(order, afterId, pageSize + 1).stream().map(this::mapToDTO).toList()
+                : courseCatalogRepository.findSummaries(order, afterId, pageSize + 1).stream().map(this::mapToDTO).toList();
+        
+        CoursePage<CourseDTO> page = toPage(rows, pageSize);
+        return CoursePage.<Map<String, Object>>builder()
+                .items(page.getItems().stream().map(course -> selectFields(course, selected)).toList())
+                .nextCursor(page.getNextCursor())
+                .build();
     }
     
     public CourseDTO getCourseById(Long id) {
-        Course course = courseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Course not found: " + id));
-        return mapToDTO(course);
+        return getVersionedCourse(id).value();
+    }
+    
+    public CourseCache.Entry<CourseDTO> getVersionedCourse(Long id) {
+        CourseCache.Entry<CourseDTO> course = courseCache.getCourse(id, courseId -> courseRepository.findById(courseId)
+                .map(found -> new CourseCache.Entry<>(mapToDTO(found), CourseCache.version(found)))
+                .orElse(null));
+        if (course == null) {
+            throw new RuntimeException("Course not found: " + id);
+        }
+        return course;
+    }
+    
+    // Cached courses are served from memory and the rest are read with one findAllById
+    public CourseBatchResponse<Object> getCoursesByIds(List<Long> ids, String fields) {
+        if (ids.isEmpty() || ids.size() > maxMultiGetIds) {
+            throw new RuntimeException("Between 1 and " + maxMultiGetIds + " course ids are required");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new RuntimeException("Course ids must not be null");
+        }
+        Set<String> selected = fields != null ? parseFields(fields) : null;
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        
+        Map<Long, CourseCache.Entry<CourseDTO>> found = courseCache.getCourses(requested, missing ->
+                courseRepository.findAllById(missing).stream()
+                        .collect(Collectors.toMap(Course::getId,
+                                course -> new CourseCache.Entry<>(mapToDTO(course), CourseCache.version(course)))));
+        
+        List<Object> items = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            CourseCache.Entry<CourseDTO> course = found.get(id);
+            if (course == null) {
+                missing.add(id);
+            } else {
+                items.add(selected != null ? selectFields(course.value(), selected) : course.value());
+            }
+        }
+        return CourseBatchResponse.builder()
+                .items(items)
+                .missing(missing)
+                .build();
     }
     
     @Transactional
@@ -42,6 +147,8 @@ public class CourseService {
                 .build();
         
         Course savedCourse = courseRepository.save(course);
+        courseIndexService.recordSaved(savedCourse);
+        courseCache.invalidate(savedCourse.getId());
         log.info("Course created: {}", savedCourse.getTitle());
         return mapToDTO(savedCourse);
     }
@@ -65,6 +172,8 @@ public class CourseService {
         }
         
         Course updatedCourse = courseRepository.save(course);
+        courseIndexService.recordSaved(updatedCourse);
+        courseCache.invalidate(id);
         log.info("Course updated: {}", updatedCourse.getTitle());
         return mapToDTO(updatedCourse);
     }
@@ -72,30 +181,75 @@ public class CourseService {
     @Transactional
     public void deleteCourse(Long id) {
         courseRepository.deleteById(id);
+        courseIndexService.recordDeleted(id);
+        courseCache.invalidate(id);
         log.info("Course deleted: {}", id);
     }
     
     public List<CourseDTO> getCoursesByCategory(String category) {
-        return courseRepository.findByCategory(category).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return getVersionedCoursesByCategory(category).value();
     }
     
-    public List<CourseDTO> searchCourses(String keyword) {
-        return courseRepository.searchByKeyword(keyword).stream()
+    public CourseCache.Entry<List<CourseDTO>> getVersionedCoursesByCategory(String category) {
+        return courseCache.getList(CourseCache.categoryKey(category), () -> {
+            List<Course> courses = courseRepository.findByCategoryOrderByIdAsc(category);
+            return new CourseCache.Entry<>(courses.stream().map(this::mapToDTO).toList(), CourseCache.version(courses));
+        });
+    }
+    
+    public CourseSearchResult searchCourses(String keyword, Integer offset, Integer limit) {
+        int from = offset != null ? offset : 0;
+        int pageSize = resolvePageSize(limit);
+        if (from < 0 || from + pageSize > maxSearchResults) {
+            throw new RuntimeException("offset + limit must not exceed " + maxSearchResults);
+        }
+        
+        CourseSearchIndex.Result result = courseIndexService.search(keyword, from, pageSize);
+        List<Long> ids = result.hits().stream().map(CourseSearchIndex.Hit::courseId).toList();
+        Map<Long, Course> courses = courseRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Course::getId, Function.identity()));
+        // Ranked order comes from the index; a course deleted since it was indexed is dropped
+        List<CourseDTO> items = ids.stream()
+                .map(courses::get)
+                .filter(Objects::nonNull)
                 .map(this::mapToDTO)
-                .collect(Collectors.toList());
+                .toList();
+        
+        int next = from + result.hits().size();
+        return CourseSearchResult.builder()
+                .items(items)
+                .total(result.total())
+                .nextOffset(next < result.total() && next < maxSearchResults ? next : null)
+                .build();
     }
     
-    public List<CourseDTO> getTopRatedCourses() {
-        return courseRepository.findTopRatedCourses().stream()
-                .limit(10)
+    // The global list reads the first k rows of the rating index; a category list never reaches the database
+    public List<CourseDTO> getTopRatedCourses(String category, Integer k) {
+        int size = k != null ? k : defaultTopRated;
+        if (size < 1 || size > maxTopRated) {
+            throw new RuntimeException("k must be between 1 and " + maxTopRated);
+        }
+        if (category == null) {
+            return courseRepository.findTopRatedCourses(PageRequest.of(0, size)).stream()
+                    .map(this::mapToDTO)
+                    .toList();
+        }
+        return courseIndexService.topRated(category, size).stream()
                 .map(this::mapToDTO)
-                .collect(Collectors.toList());
+                .toList();
     }
     
     public List<String> getAllCategories() {
-        return courseRepository.findAllCategories();
+        return getVersionedCategories().value();
+    }
+    
+    public CourseCache.Entry<List<String>> getVersionedCategories() {
+        return courseCache.getList(CourseCache.CATEGORIES_KEY, () -> {
+            // Versioned before the read, so a write landing in between leaves an older ETag rather than a newer one
+            CourseRepository.CatalogVersion version = courseRepository.findCatalogVersion();
+            List<String> categories = courseRepository.findAllCategories();
+            return new CourseCache.Entry<>(categories, CourseCache.version(version.getCourses(), version.getLatestUpdate()));
+        });
     }
     
     @Transactional
@@ -105,9 +259,93 @@ public class CourseService {
         course.setAverageRating(newAverageRating);
         course.setTotalRatings(totalRatings);
         courseRepository.save(course);
+        courseCache.invalidate(courseId);
+        courseIndexService.recordRatingsUpdated(List.of(new CourseRatingUpdate(courseId, newAverageRating, totalRatings)));
         log.info("Course rating updated: {} - Rating: {}", course.getTitle(), newAverageRating);
     }
     
+    @Transactional
+    public int updateCourseRatings(List<CourseRatingUpdate> updates) {
+        if (updates.size() > maxBatchSize) {
+            throw new RuntimeException("Batch size exceeds limit of " + maxBatchSize);
+        }
+        for (CourseRatingUpdate update : updates) {
+            if (update.getCourseId() == null || update.getAverageRating() == null || update.getTotalRatings() == null) {
+                throw new RuntimeException("courseId, averageRating and totalRatings are required");
+            }
+        }
+        
+        int updated = courseBatchRepository.updateRatings(updates);
+        courseIndexService.recordRatingsUpdated(updates);
+        courseCache.invalidateAll(updates.stream().map(CourseRatingUpdate::getCourseId).toList());
+        log.info("Course ratings updated in batch: requested={}, updated={}", updates.size(), updated);
+        return updated;
+    }
+    
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new RuntimeException("limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+    
+    // Queries fetch one row past the page so the last page can be detected without a COUNT
+    private CoursePage<CourseDTO> toPage(List<CourseDTO> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return CoursePage.<CourseDTO>builder().items(rows).build();
+        }
+        List<CourseDTO> items = rows.subList(0, pageSize);
+        return CoursePage.<CourseDTO>builder()
+                .items(items)
+                .nextCursor(items.get(pageSize - 1).getId())
+                .build();
+    }
+    
+    // id is always included since it is the paging cursor
+    private Set<String> parseFields(String fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!COURSE_FIELDS.contains(name)) {
+                throw new RuntimeException("Unknown course field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+    
+    private Map<String, Object> selectFields(CourseDTO course, Set<String> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String field : fields) {
+            selected.put(field, switch (field) {
+                case "id" -> course.getId();
+                case "title" -> course.getTitle();
+                case "description" -> course.getDescription();
+                case "category" -> course.getCategory();
+                case "instructor" -> course.getInstructor();
+                case "averageRating" -> course.getAverageRating();
+                case "totalRatings" -> course.getTotalRatings();
+                default -> throw new IllegalStateException("Unhandled course field: " + field);
+            });
+        }
+        return selected;
+    }
+    
+    private CourseDTO mapToDTO(CourseSummary course) {
+        return CourseDTO.builder()
+                .id(course.id())
+                .title(course.title())
+                .category(course.category())
+                .instructor(course.instructor())
+                .averageRating(course.averageRating())
+                .totalRatings(course.totalRatings())
+                .build();
+    }
+    
     private CourseDTO mapToDTO(Course course) {
         return CourseDTO.builder()
                 .id(course.getId())
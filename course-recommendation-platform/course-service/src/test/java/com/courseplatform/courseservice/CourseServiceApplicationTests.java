@@ -1,21 +1,47 @@
 package com.courseplatform.courseservice;
 
 import com.courseplatform.common.dto.CourseDTO;
+import com.courseplatform.common.dto.CourseRatingUpdate;
+import com.courseplatform.common.http.ServiceCallRejectedException;
+import com.courseplatform.common.http.ServiceClientProperties;
+import com.courseplatform.common.http.ServiceClients;
+import com.courseplatform.courseservice.dto.CourseBatchResponse;
+import com.courseplatform.courseservice.dto.CoursePage;
+import com.courseplatform.courseservice.dto.CourseSuggestion;
+import com.courseplatform.courseservice.dto.CourseSummary;
 import com.courseplatform.courseservice.entity.Course;
 import com.courseplatform.courseservice.repository.CourseRepository;
+import com.courseplatform.courseservice.search.CourseLeaderboard;
+import com.courseplatform.courseservice.search.CourseSearchIndex;
+import com.courseplatform.courseservice.search.CourseSuggestIndex;
+import com.courseplatform.courseservice.service.CourseIndexService;
 import com.courseplatform.courseservice.service.CourseService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @ActiveProfiles("test")
 @Transactional
 class CourseServiceApplicationTests {
@@ -26,6 +52,15 @@ class CourseServiceApplicationTests {
     @Autowired
     private CourseRepository courseRepository;
     
+    @Autowired
+    private CourseIndexService courseIndexService;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
     @BeforeEach
     void setUp() {
         courseRepository.deleteAll();
@@ -72,9 +107,41 @@ class CourseServiceApplicationTests {
         courseRepository.save(course1);
         courseRepository.save(course2);
         
-        List<CourseDTO> courses = courseService.getAllCourses();
+        CoursePage<CourseDTO> courses = courseService.getCourses(null, null, null);
         
-        assertEquals(2, courses.size());
+        assertEquals(2, courses.getItems().size());
+        assertNull(courses.getNextCursor());
+    }
+    
+    @Test
+    void testGetCoursesKeysetPaginationWithSortAndFields() {
+        double[] ratings = {4.0, 2.5, 4.0, 5.0, 3.0};
+        for (int i = 0; i < ratings.length; i++) {
+            courseRepository.save(Course.builder()
+                    .title("Course " + i)
+                    .description("Description " + i)
+                    .category("Programming")
+                    .instructor("John Doe")
+                    .averageRating(ratings[i])
+                    .build());
+        }
+        
+        List<Double> seen = new ArrayList<>();
+        Long after = null;
+        do {
+            CoursePage<Map<String, Object>> page = courseService.getCourseFields(after, 2, "-averageRating", "title,averageRating");
+            page.getItems().forEach(item -> {
+                assertEquals(List.of("id", "title", "averageRating"), List.copyOf(item.keySet()));
+                seen.add((Double) item.get("averageRating"));
+            });
+            after = page.getNextCursor();
+        } while (after != null);
+        
+        assertEquals(List.of(5.0, 4.0, 4.0, 3.0, 2.5), seen);
+        assertEquals(5, courseService.getCourses(null, 10, "title").getItems().size());
+        assertThrows(RuntimeException.class, () -> courseService.getCourseFields(null, 2, null, "password"));
+        assertThrows(RuntimeException.class, () -> courseService.getCourses(null, 0, null));
+        assertThrows(RuntimeException.class, () -> courseService.getCourses(null, 2, "popularity"));
     }
     
     @Test
@@ -146,10 +213,222 @@ class CourseServiceApplicationTests {
                 .instructor("John Doe")
                 .build();
         courseRepository.save(course);
+        courseIndexService.rebuild();
         
-        List<CourseDTO> results = courseService.searchCourses("Java");
+        List<CourseDTO> results = courseService.searchCourses("Java", null, null).getItems();
         
         assertEquals(1, results.size());
         assertTrue(results.get(0).getTitle().contains("Java"));
     }
+    
+    @Test
+    void testSearchIndexRanksWithBm25AndTracksChanges() {
+        CourseSearchIndex index = new CourseSearchIndex();
+        index.put(1L, "Cooking Basics", "A short aside about Java coffee", "Jane Doe");
+        index.put(2L, "Java Programming", "Learn the language", "John Doe");
+        index.put(3L, "Gardening", "Nothing related", "John Doe");
+        
+        assertEquals(List.of(2L, 1L), index.search("java", 0, 10).hits().stream()
+                .map(CourseSearchIndex.Hit::courseId).toList());
+        CourseSearchIndex.Result secondPage = index.search("JAVA!", 1, 1);
+        assertEquals(2, secondPage.total());
+        assertEquals(1L, secondPage.hits().get(0).courseId());
+        
+        index.put(1L, "Cooking Basics", "Now without the drink", "Jane Doe");
+        index.remove(2L);
+        assertEquals(0, index.search("java", 0, 10).total());
+        assertEquals(2, index.search("john doe", 0, 10).total());
+        assertEquals(0, index.search("  -  ", 0, 10).total());
+        
+        // Single-letter languages and version numbers are whole tokens; matching is by token, not substring
+        index.put(4L, "C Programming", "Pointers and memory", "Jane Doe");
+        index.put(5L, "R for Data Science", "Statistics in R", "John Doe");
+        index.put(6L, "Python 3", "Modern Python", "Jane Doe");
+        assertEquals(List.of(4L), index.search("C", 0, 10).hits().stream().map(CourseSearchIndex.Hit::courseId).toList());
+        assertEquals(List.of(5L), index.search("r", 0, 10).hits().stream().map(CourseSearchIndex.Hit::courseId).toList());
+        assertEquals(List.of(6L), index.search("3", 0, 10).hits().stream().map(CourseSearchIndex.Hit::courseId).toList());
+        assertEquals(0, index.search("pyth", 0, 10).total());
+        
+        courseRepository.save(Course.builder()
+                .title("Spring Boot")
+                .category("Programming")
+                .instructor("John Doe")
+                .build());
+        assertEquals(1, courseIndexService.rebuild().getCourses());
+        assertThrows(RuntimeException.class, () -> courseService.searchCourses("spring", 990, 20));
+    }
+    
+    @Test
+    void testSuggestIndexRanksPrefixMatchesByRating() {
+        CourseSuggestIndex index = new CourseSuggestIndex(2);
+        index.put(1L, "Java Basics", "John Doe", 4.0, 10);
+        index.put(2L, "JavaScript: The Good Parts", "Jane Roe", 4.8, 5);
+        index.put(3L, "Jáva Streams", "John Doe", 4.0, 30);
+        
+        assertEquals(List.of(2L, 3L), ids(index.suggest("  JAVA", 10)));
+        assertEquals(List.of(3L), ids(index.suggest("java s", 10)));
+        assertEquals(List.of(3L, 1L), ids(index.suggest("john", 10)));
+        assertEquals(List.of(2L), ids(index.suggest("javascript the", 1)));
+        assertTrue(index.suggest("python", 10).isEmpty());
+        
+        index.updateRating(1L, 5.0, 1);
+        assertEquals(List.of(1L, 2L), ids(index.suggest("java", 10)));
+        index.put(1L, "Kotlin Basics", "John Doe", 5.0, 1);
+        index.remove(2L);
+        assertEquals(List.of(3L), ids(index.suggest("java", 10)));
+        assertEquals(List.of(1L), ids(index.suggest("k", 10)));
+        assertEquals(2, index.size());
+    }
+    
+    @Test
+    void testTopRatedCoursesGlobalAndPerCategory() {
+        double[] ratings = {3.0, 4.5, 4.0};
+        for (int i = 0; i < ratings.length; i++) {
+            courseRepository.save(Course.builder()
+                    .title("Programming " + i)
+                    .category("Programming")
+                    .instructor("John Doe")
+                    .averageRating(ratings[i])
+                    .build());
+        }
+        Course data = courseRepository.save(Course.builder()
+                .title("Data Science")
+                .category("Data")
+                .instructor("Jane Doe")
+                .averageRating(5.0)
+                .build());
+        courseIndexService.rebuild();
+        
+        assertEquals(List.of(5.0, 4.5), courseService.getTopRatedCourses(null, 2).stream()
+                .map(CourseDTO::getAverageRating).toList());
+        assertEquals(List.of(4.5, 4.0), courseService.getTopRatedCourses("Programming", 2).stream()
+                .map(CourseDTO::getAverageRating).toList());
+        assertTrue(courseService.getTopRatedCourses("Music", null).isEmpty());
+        assertThrows(RuntimeException.class, () -> courseService.getTopRatedCourses(null, 0));
+        
+        CourseLeaderboard leaderboard = new CourseLeaderboard();
+        leaderboard.put(1L, "A", "Programming", "John Doe", 4.5, 10);
+        leaderboard.put(2L, "B", "Programming", "John Doe", 4.0, 3);
+        leaderboard.put(3L, "C", "Programming", "John Doe", 4.0, 8);
+        leaderboard.put(data.getId(), "D", "Data", "Jane Doe", 5.0, 1);
+        
+        leaderboard.updateRating(1L, 2.0, 11);
+        assertEquals(List.of(3L, 2L), leaderboard.top("Programming", 2).stream().map(CourseSummary::id).toList());
+        leaderboard.put(3L, "C", "Data", "John Doe", 4.0, 8);
+        leaderboard.remove(2L);
+        assertEquals(List.of(1L), leaderboard.top("Programming", 5).stream().map(CourseSummary::id).toList());
+        assertEquals(List.of(data.getId(), 3L), leaderboard.top("Data", 5).stream().map(CourseSummary::id).toList());
+    }
+    
+    @Test
+    void testConditionalGetReturnsNotModifiedUntilCourseChanges() throws Exception {
+        Course course = courseRepository.saveAndFlush(Course.builder()
+                .title("Java Programming")
+                .category("Programming")
+                .instructor("John Doe")
+                .build());
+        
+        String etag = mockMvc.perform(get("/api/courses/{id}", course.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/courses/{id}", course.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        String categoriesEtag = mockMvc.perform(get("/api/courses/categories"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/courses/categories").header("If-None-Match", categoriesEtag))
+                .andExpect(status().isNotModified());
+        
+        courseService.updateCourseRating(course.getId(), 4.5, 2);
+        entityManager.flush();
+        
+        mockMvc.perform(get("/api/courses/{id}", course.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averageRating").value(4.5));
+        mockMvc.perform(get("/api/courses/categories").header("If-None-Match", categoriesEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/courses/category/{category}", "Programming"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].totalRatings").value(2));
+    }
+    
+    @Test
+    void testGetCoursesByIdsKeepsRequestOrderAndReportsMissing() {
+        Course java = courseRepository.saveAndFlush(Course.builder()
+                .title("Java Programming")
+                .category("Programming")
+                .instructor("John Doe")
+                .build());
+        Course python = courseRepository.saveAndFlush(Course.builder()
+                .title("Python Programming")
+                .category("Programming")
+                .instructor("Jane Doe")
+                .build());
+        // Cached before the batch, so it is served from memory while the other is read from the database
+        courseService.getCourseById(python.getId());
+        
+        CourseBatchResponse<Object> batch = courseService.getCoursesByIds(
+                List.of(python.getId(), -1L, java.getId(), python.getId()), null);
+        assertEquals(List.of(python.getId(), java.getId()),
+                batch.getItems().stream().map(item -> ((CourseDTO) item).getId()).toList());
+        assertEquals(List.of(-1L), batch.getMissing());
+        
+        CourseBatchResponse<Object> sparse = courseService.getCoursesByIds(List.of(java.getId()), "title");
+        assertEquals(Map.of("id", java.getId(), "title", "Java Programming"), sparse.getItems().get(0));
+        
+        assertThrows(RuntimeException.class, () -> courseService.getCoursesByIds(List.of(), null));
+        assertThrows(RuntimeException.class, () -> courseService.getCoursesByIds(
+                LongStream.rangeClosed(1, 101).boxed().toList(), null));
+        assertThrows(RuntimeException.class, () -> courseService.getCoursesByIds(List.of(java.getId()), "password"));
+    }
+    
+    @Test
+    void testUpdateCourseRatingsInBatch() {
+        Course java = courseRepository.saveAndFlush(Course.builder()
+                .title("Java Programming")
+                .category("Programming")
+                .instructor("John Doe")
+                .build());
+        Course python = courseRepository.saveAndFlush(Course.builder()
+                .title("Python Programming")
+                .category("Programming")
+                .instructor("John Doe")
+                .build());
+        
+        int updated = courseService.updateCourseRatings(List.of(
+                new CourseRatingUpdate(java.getId(), 4.5, 2),
+                new CourseRatingUpdate(python.getId(), 3.0, 1),
+                new CourseRatingUpdate(-1L, 5.0, 1)
+        ));
+        entityManager.clear();
+        
+        assertEquals(2, updated);
+        Course reloaded = courseRepository.findById(java.getId()).orElseThrow();
+        assertEquals(4.5, reloaded.getAverageRating());
+        assertEquals(2, reloaded.getTotalRatings());
+        assertEquals(1, courseRepository.findById(python.getId()).orElseThrow().getTotalRatings());
+    }
+    
+    @Test
+    void testServiceClientCircuitBreakerOpensAfterFailures() {
+        ServiceClientProperties properties = new ServiceClientProperties();
+        properties.setUrl("http://localhost:1");
+        properties.setConnectTimeout(Duration.ofMillis(200));
+        properties.setFailureThreshold(2);
+        properties.setOpenDuration(Duration.ofMinutes(1));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RestTemplate client = ServiceClients.restTemplate("unreachable", properties, meterRegistry);
+        
+        assertThrows(ResourceAccessException.class, () -> client.getForObject("/api/ping", String.class));
+        assertThrows(ResourceAccessException.class, () -> client.getForObject("/api/ping", String.class));
+        assertThrows(ServiceCallRejectedException.class, () -> client.getForObject("/api/ping", String.class));
+        
+        assertEquals(2, meterRegistry.get("service.client.requests")
+                .tags("target", "unreachable", "outcome", "io_error").timer().count());
+        assertEquals(1.0, meterRegistry.get("service.client.circuit.open").gauge().value());
+    }
+    
+    private static List<Long> ids(List<CourseSuggestion> suggestions) {
+        return suggestions.stream().map(CourseSuggestion::id).toList();
+    }
 }
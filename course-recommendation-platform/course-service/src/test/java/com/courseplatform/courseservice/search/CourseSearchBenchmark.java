@@ -0,0 +1,102 @@
+package com.courseplatform.courseservice.search;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Keyword search latency of {@link CourseSearchIndex} against the LIKE query it replaced, over the same
+ * generated catalog in an embedded H2 database. Titles and descriptions draw words from a skewed
+ * vocabulary, so the queries mix common and rare terms.
+ *
+ * Run with {@code gradle :course-service:searchBenchmark}; override the load with
+ * {@code -Dcourses=...} and {@code -Dqueries=...}.
+ */
+public class CourseSearchBenchmark {
+    
+    private static final int VOCABULARY = 20_000;
+    private static final String LIKE_QUERY = "SELECT id FROM courses " +
+            "WHERE LOWER(title) LIKE LOWER(CONCAT('%', ?, '%')) OR LOWER(description) LIKE LOWER(CONCAT('%', ?, '%'))";
+    
+    public static void main(String[] args) {
+        int courses = Integer.getInteger("courses", 100_000);
+        int queries = Integer.getInteger("queries", 200);
+        Random random = new Random(42);
+        
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:search-bench;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE courses (id BIGINT PRIMARY KEY, title VARCHAR(255), " +
+                "description TEXT, instructor VARCHAR(255))");
+        
+        CourseSearchIndex index = new CourseSearchIndex();
+        List<Object[]> batch = new ArrayList<>();
+        long indexNanos = 0;
+        for (long id = 1; id <= courses; id++) {
+            String title = words(random, 4);
+            String description = words(random, 40);
+            String instructor = "instructor" + random.nextInt(2_000);
+            batch.add(new Object[]{id, title, description, instructor});
+            long start = System.nanoTime();
+            index.put(id, title, description, instructor);
+            indexNanos += System.nanoTime() - start;
+            if (batch.size() == 1_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO courses VALUES (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO courses VALUES (?, ?, ?, ?)", batch);
+        }
+        
+        List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < queries; i++) {
+            keywords.add(word(random));
+        }
+        
+        // Warm up both paths before measuring
+        keywords.stream().limit(20).forEach(keyword -> {
+            jdbcTemplate.queryForList(LIKE_QUERY, Long.class, keyword, keyword);
+            index.search(keyword, 0, 20);
+        });
+        
+        long likeNanos = 0;
+        long likeMatches = 0;
+        for (String keyword : keywords) {
+            long start = System.nanoTime();
+            likeMatches += jdbcTemplate.queryForList(LIKE_QUERY, Long.class, keyword, keyword).size();
+            likeNanos += System.nanoTime() - start;
+        }
+        long indexSearchNanos = 0;
+        long indexMatches = 0;
+        for (String keyword : keywords) {
+            long start = System.nanoTime();
+            indexMatches += index.search(keyword, 0, 20).total();
+            indexSearchNanos += System.nanoTime() - start;
+        }
+        
+        System.out.printf("courses=%d queries=%d terms=%d indexBuildMs=%d%n",
+                courses, queries, index.termCount(), indexNanos / 1_000_000);
+        // LIKE also counts substring hits ("java" in "javascript"), so its match counts run higher
+        System.out.printf("%-8s %14s %16s%n", "method", "avg ms/query", "avg matches");
+        System.out.printf("%-8s %14.3f %16.1f%n", "like", likeNanos / 1e6 / queries, (double) likeMatches / queries);
+        System.out.printf("%-8s %14.3f %16.1f%n", "bm25", indexSearchNanos / 1e6 / queries, (double) indexMatches / queries);
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+    
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i > 0 ? " " : "").append(word(random));
+        }
+        return text.toString();
+    }
+    
+    // Squaring a uniform draw skews the pick toward low ranks, roughly like word frequencies in real text
+    private static String word(Random random) {
+        double draw = random.nextDouble();
+        return "w" + Integer.toString((int) (draw * draw * VOCABULARY), 36);
+    }
+}
@@ -0,0 +1,86 @@
+package com.courseplatform.courseservice.search;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Autocomplete latency of {@link CourseSuggestIndex} over a generated catalog. Prefixes are cut from
+ * real titles and instructor names at lengths 1 to 8, the way a search box sends them keystroke by
+ * keystroke, and rating updates are interleaved to include the cost of keeping the rankings fresh.
+ *
+ * Run with {@code gradle :course-service:suggestBenchmark}; override the load with
+ * {@code -Dcourses=...} and {@code -Dqueries=...}.
+ */
+public class CourseSuggestBenchmark {
+    
+    private static final String[] SYLLABLES = {
+            "ja", "va", "py", "thon", "ko", "tlin", "da", "ta", "sci", "ence", "web", "de", "sign", "ma", "chine",
+            "lear", "ning", "cloud", "ops", "se", "cu", "ri", "ty", "al", "go", "rithm", "net", "work", "mo", "bile"
+    };
+    
+    public static void main(String[] args) {
+        int courses = Integer.getInteger("courses", 100_000);
+        int queries = Integer.getInteger("queries", 200_000);
+        Random random = new Random(42);
+        
+        String[] titles = new String[courses];
+        String[] instructors = new String[courses];
+        CourseSuggestIndex index = new CourseSuggestIndex(10);
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < courses; i++) {
+            titles[i] = words(random, 2 + random.nextInt(4));
+            instructors[i] = words(random, 2);
+            index.put(i, titles[i], instructors[i], random.nextInt(51) / 10.0, random.nextInt(1_000));
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        
+        long[] latencies = new long[queries];
+        long updateNanos = 0;
+        int updates = 0;
+        for (int i = 0; i < queries; i++) {
+            int course = random.nextInt(courses);
+            String source = random.nextInt(4) == 0 ? instructors[course] : titles[course];
+            String prefix = source.substring(0, Math.min(source.length(), 1 + random.nextInt(8)));
+            
+            long start = System.nanoTime();
+            index.suggest(prefix, 10);
+            latencies[i] = System.nanoTime() - start;
+            
+            // One rating change per ten lookups
+            if (i % 10 == 0) {
+                long updateStart = System.nanoTime();
+                index.updateRating(random.nextInt(courses), random.nextInt(51) / 10.0, random.nextInt(1_000));
+                updateNanos += System.nanoTime() - updateStart;
+                updates++;
+            }
+        }
+        
+        // The first half warms up the JIT; report on the second
+        long[] measured = Arrays.copyOfRange(latencies, queries / 2, queries);
+        Arrays.sort(measured);
+        System.out.printf("courses=%d queries=%d buildMs=%d%n", courses, measured.length, buildMillis);
+        System.out.printf("suggest   p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                percentile(measured, 0.50), percentile(measured, 0.99), percentile(measured, 0.999),
+                measured[measured.length - 1] / 1e3);
+        System.out.printf("update    avg=%.1fus%n", updateNanos / 1e3 / updates);
+    }
+    
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e3;
+    }
+    
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            int syllables = 1 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+                text.append(s == 0 && i == 0 ? Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1) : syllable);
+            }
+        }
+        return text.toString();
+    }
+}
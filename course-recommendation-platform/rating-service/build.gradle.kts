@@ -13,6 +13,9 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
     
+    // Cache
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    
     // Kafka
     implementation("org.springframework.kafka:spring-kafka")
     
@@ -1,6 +1,9 @@
 package com.courseplatform.ratingservice.config;
 
+import com.courseplatform.ratingservice.service.IdempotencyKeyInProgressException;
+import com.courseplatform.ratingservice.service.IngestBufferFullException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,6 +16,32 @@ import java.util.Map;
 @Slf4j
 public class GlobalExceptionHandler {
     
+    @ExceptionHandler(IngestBufferFullException.class)
+    public ResponseEntity<Map<String, Object>> handleIngestBufferFull(IngestBufferFullException ex) {
+        log.warn("Rating ingest rejected: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of(
+                        "timestamp", LocalDateTime.now().toString(),
+                        "message", ex.getMessage(),
+                        "status", HttpStatus.TOO_MANY_REQUESTS.value()
+                ));
+    }
+    
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyKeyInProgress(IdempotencyKeyInProgressException ex) {
+        log.warn("Idempotent request rejected: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of(
+                        "timestamp", LocalDateTime.now().toString(),
+                        "message", ex.getMessage(),
+                        "status", HttpStatus.CONFLICT.value()
+                ));
+    }
+    
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, Object>> handleRuntimeException(RuntimeException ex) {
         log.error("Runtime exception: {}", ex.getMessage());
@@ -1,6 +1,7 @@
 package com.courseplatform.ratingservice.config;
 
 import com.courseplatform.common.dto.RatingEvent;
+import com.courseplatform.common.kafka.RatingEventSerializer;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
@@ -25,13 +26,34 @@ public class KafkaConfig {
     @Value("${kafka.topic.ratings}")
     private String ratingsTopic;
     
+    @Value("${kafka.producer.linger-ms:20}")
+    private int lingerMs;
+    
+    @Value("${kafka.producer.batch-size:131072}")
+    private int batchSize;
+    
+    @Value("${kafka.producer.compression-type:lz4}")
+    private String compressionType;
+    
+    // "binary" (RatingEventCodec) or "json"; switch to json while consumers still only read JSON
+    @Value("${kafka.producer.value-format:binary}")
+    private String valueFormat;
+    
     @Bean
     public ProducerFactory<String, RatingEvent> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(JsonSerializer.TYPE_MAPPINGS, "ratingEvent:com.courseplatform.common.dto.RatingEvent");
+        if ("json".equalsIgnoreCase(valueFormat)) {
+            configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+            configProps.put(JsonSerializer.TYPE_MAPPINGS, "ratingEvent:com.courseplatform.common.dto.RatingEvent");
+        } else {
+            configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, RatingEventSerializer.class);
+        }
+        // The outbox relay publishes in bulk, so let the producer fill large compressed batches
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
     
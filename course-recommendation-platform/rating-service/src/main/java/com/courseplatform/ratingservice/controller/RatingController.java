@@ -1,14 +1,37 @@
 package com.courseplatform.ratingservice.controller;
 
 import com.courseplatform.common.dto.RatingEvent;
+import com.courseplatform.ratingservice.dto.BatchRatingItemResult;
+import com.courseplatform.ratingservice.dto.BatchRatingResponse;
+import com.courseplatform.ratingservice.dto.CourseRatingAggregate;
+import com.courseplatform.ratingservice.dto.RatingDuplicateFilterStats;
+import com.courseplatform.ratingservice.dto.RatingExportSummary;
+import com.courseplatform.ratingservice.dto.RatingIngestStatus;
+import com.courseplatform.ratingservice.dto.RatingPage;
+import com.courseplatform.ratingservice.dto.RatingReconciliationReport;
+import com.courseplatform.ratingservice.dto.RatingUpsertResult;
 import com.courseplatform.ratingservice.entity.Rating;
+import com.courseplatform.ratingservice.service.CourseRatingReconciler;
+import com.courseplatform.ratingservice.service.CourseRatingStatsService;
+import com.courseplatform.ratingservice.service.CourseRatingWindowStats;
+import com.courseplatform.ratingservice.service.IdempotencyStore;
+import com.courseplatform.ratingservice.service.RatingDuplicateFilter;
+import com.courseplatform.ratingservice.service.RatingExportService;
+import com.courseplatform.ratingservice.service.RatingIngestBuffer;
 import com.courseplatform.ratingservice.service.RatingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,46 +41,179 @@ import java.util.Map;
 @Slf4j
 public class RatingController {
     
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
     private final RatingService ratingService;
+    private final RatingIngestBuffer ratingIngestBuffer;
+    private final CourseRatingWindowStats courseRatingWindowStats;
+    private final RatingExportService ratingExportService;
+    private final CourseRatingReconciler courseRatingReconciler;
+    private final CourseRatingStatsService courseRatingStatsService;
+    private final RatingDuplicateFilter ratingDuplicateFilter;
+    private final IdempotencyStore idempotencyStore;
     
     @PostMapping
-    public ResponseEntity<RatingEvent> createRating(@RequestBody RatingRequest request) {
+    public ResponseEntity<?> createRating(
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody RatingRequest request) {
         log.info("Creating rating: userId={}, courseId={}, rating={}", 
                 request.getUserId(), request.getCourseId(), request.getRating());
         
-        RatingEvent event = ratingService.createRating(
-                request.getUserId(),
-                request.getCourseId(),
-                request.getRating(),
-                request.getComment()
-        );
+        return idempotencyStore.<Object>execute(idempotencyKey, "POST /api/ratings", request, () -> {
+            if (ratingIngestBuffer.isEnabled()) {
+                return ingestRating(request);
+            }
+            
+            RatingEvent event = ratingService.createRating(
+                    request.getUserId(),
+                    request.getCourseId(),
+                    request.getRating(),
+                    request.getComment()
+            );
+            
+            return ResponseEntity.status(HttpStatus.CREATED).body(event);
+        });
+    }
+    
+    @GetMapping("/ingest/{trackingId}")
+    public ResponseEntity<RatingIngestStatus> getIngestStatus(@PathVariable String trackingId) {
+        return ResponseEntity.ok(ratingIngestBuffer.getStatus(trackingId));
+    }
+    
+    @PostMapping("/batch")
+    public ResponseEntity<BatchRatingResponse> createRatings(
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody List<RatingRequest> requests) {
+        log.info("Creating rating batch: size={}", requests.size());
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(event);
+        return idempotencyStore.execute(idempotencyKey, "POST /api/ratings/batch", requests,
+                () -> createRatingBatch(requests));
     }
     
     @PutMapping
-    public ResponseEntity<RatingEvent> updateRating(@RequestBody RatingRequest request) {
+    public ResponseEntity<RatingEvent> updateRating(
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody RatingRequest request) {
         log.info("Updating rating: userId={}, courseId={}, rating={}", 
                 request.getUserId(), request.getCourseId(), request.getRating());
         
-        RatingEvent event = ratingService.updateRating(
-                request.getUserId(),
-                request.getCourseId(),
-                request.getRating(),
-                request.getComment()
-        );
+        return idempotencyStore.execute(idempotencyKey, "PUT /api/ratings", request, () -> {
+            RatingEvent event = ratingService.updateRating(
+                    request.getUserId(),
+                    request.getCourseId(),
+                    request.getRating(),
+                    request.getComment()
+            );
+            
+            return ResponseEntity.ok(event);
+        });
+    }
+    
+    private ResponseEntity<BatchRatingResponse> createRatingBatch(List<RatingRequest> requests) {
+        List<Rating> ratings = requests.stream()
+                .map(request -> Rating.builder()
+                        .userId(request.getUserId())
+                        .courseId(request.getCourseId())
+                        .rating(request.getRating())
+                        .comment(request.getComment())
+                        .build())
+                .toList();
         
-        return ResponseEntity.ok(event);
+        List<BatchRatingItemResult> results = ratingService.createRatings(ratings);
+        int created = (int) results.stream().filter(BatchRatingItemResult::isSuccess).count();
+        
+        return ResponseEntity.ok(BatchRatingResponse.builder()
+                .total(results.size())
+                .created(created)
+                .failed(results.size() - created)
+                .results(results)
+                .build());
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRatings(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        log.info("Exporting ratings: since={}", since);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ratings.rcol.gz\"")
+                .body(out -> ratingExportService.export(since, out));
+    }
+    
+    @PostMapping("/export/file")
+    public ResponseEntity<RatingExportSummary> exportRatingsToFile(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+        log.info("Exporting ratings to file: since={}", since);
+        return ResponseEntity.ok(ratingExportService.exportToFile(since));
+    }
+    
+    @PostMapping("/reconcile")
+    public ResponseEntity<RatingReconciliationReport> reconcileCourseRatings() {
+        log.info("Reconciling course ratings on request");
+        return ResponseEntity.ok(courseRatingReconciler.reconcile());
+    }
+    
+    @PostMapping("/stats/backfill")
+    public ResponseEntity<Map<String, Object>> backfillCourseRatingStats() {
+        log.info("Backfilling course rating stats on request");
+        return ResponseEntity.ok(Map.of("coursesBackfilled", courseRatingStatsService.backfillMissing()));
+    }
+    
+    @GetMapping("/duplicate-filter")
+    public ResponseEntity<RatingDuplicateFilterStats> getDuplicateFilterStats() {
+        return ResponseEntity.ok(ratingDuplicateFilter.getStats());
+    }
+    
+    @PostMapping("/duplicate-filter/rebuild")
+    public ResponseEntity<RatingDuplicateFilterStats> rebuildDuplicateFilter() {
+        log.info("Rebuilding duplicate rating filter on request");
+        ratingDuplicateFilter.rebuild();
+        return ResponseEntity.ok(ratingDuplicateFilter.getStats());
     }
     
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Rating>> getRatingsByUser(@PathVariable Long userId) {
-        return ResponseEntity.ok(ratingService.getRatingsByUserId(userId));
+    public ResponseEntity<? extends List<?>> getRatingsByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        if (isCompact(fields)) {
+            return pageResponse(ratingService.getRatingSummariesByUserId(userId, after, limit));
+        }
+        return pageResponse(ratingService.getRatingsPageByUserId(userId, after, limit));
+    }
+    
+    @GetMapping(value = "/user/{userId}", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamRatingsByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String fields) {
+        if (isCompact(fields)) {
+            return ndjsonResponse(out -> ratingService.streamRatingSummariesByUserId(userId, out));
+        }
+        return ndjsonResponse(out -> ratingService.streamRatingsByUserId(userId, out));
     }
     
     @GetMapping("/course/{courseId}")
-    public ResponseEntity<List<Rating>> getRatingsByCourse(@PathVariable Long courseId) {
-        return ResponseEntity.ok(ratingService.getRatingsByCourseId(courseId));
+    public ResponseEntity<? extends List<?>> getRatingsByCourse(
+            @PathVariable Long courseId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        if (isCompact(fields)) {
+            return pageResponse(ratingService.getRatingSummariesByCourseId(courseId, after, limit));
+        }
+        return pageResponse(ratingService.getRatingsPageByCourseId(courseId, after, limit));
+    }
+    
+    @GetMapping(value = "/course/{courseId}", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamRatingsByCourse(
+            @PathVariable Long courseId,
+            @RequestParam(required = false) String fields) {
+        if (isCompact(fields)) {
+            return ndjsonResponse(out -> ratingService.streamRatingSummariesByCourseId(courseId, out));
+        }
+        return ndjsonResponse(out -> ratingService.streamRatingsByCourseId(courseId, out));
     }
     
     @GetMapping("/user/{userId}/course/{courseId}")
@@ -67,26 +223,125 @@ public class RatingController {
         return ResponseEntity.ok(ratingService.getRatingByUserAndCourse(userId, courseId));
     }
     
+    @PutMapping("/user/{userId}/course/{courseId}")
+    public ResponseEntity<RatingUpsertResult> upsertRating(
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @PathVariable Long userId,
+            @PathVariable Long courseId,
+            @RequestBody RatingRequest request) {
+        log.info("Upserting rating: userId={}, courseId={}, rating={}", userId, courseId, request.getRating());
+        
+        return idempotencyStore.execute(idempotencyKey, "PUT /api/ratings/user/course",
+                List.of(userId, courseId, request), () -> {
+                    RatingUpsertResult result = ratingService.upsertRating(
+                            userId,
+                            courseId,
+                            request.getRating(),
+                            request.getComment()
+                    );
+                    
+                    return ResponseEntity.status(result.isCreated() ? HttpStatus.CREATED : HttpStatus.OK).body(result);
+                });
+    }
+    
+    @GetMapping("/user/{userId}/course/{courseId}/comment")
+    public ResponseEntity<Map<String, Object>> getRatingComment(
+            @PathVariable Long userId,
+            @PathVariable Long courseId) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("userId", userId);
+        body.put("courseId", courseId);
+        body.put("comment", ratingService.getRatingComment(userId, courseId));
+        return ResponseEntity.ok(body);
+    }
+    
     @DeleteMapping("/user/{userId}/course/{courseId}")
     public ResponseEntity<Void> deleteRating(
+            @RequestHeader(value = IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @PathVariable Long userId,
             @PathVariable Long courseId) {
         log.info("Deleting rating: userId={}, courseId={}", userId, courseId);
-        ratingService.deleteRating(userId, courseId);
-        return ResponseEntity.noContent().build();
+        return idempotencyStore.execute(idempotencyKey, "DELETE /api/ratings/user/course",
+                List.of(userId, courseId), () -> {
+                    ratingService.deleteRating(userId, courseId);
+                    return ResponseEntity.noContent().build();
+                });
     }
     
     @GetMapping("/course/{courseId}/average")
     public ResponseEntity<Map<String, Object>> getCourseRatingStats(@PathVariable Long courseId) {
-        Double avgRating = ratingService.getAverageRating(courseId);
-        Integer totalRatings = ratingService.getTotalRatings(courseId);
+        CourseRatingAggregate aggregate = ratingService.getCourseRatingAggregates(List.of(courseId)).get(courseId);
+        
+        return ResponseEntity.ok(Map.of(
+                "courseId", courseId,
+                "averageRating", aggregate.averageRating(),
+                "totalRatings", aggregate.totalRatings()
+        ));
+    }
+    
+    @PostMapping("/stats/batch")
+    public ResponseEntity<Map<Long, CourseRatingAggregate>> getCourseStatsBatch(@RequestBody List<Long> courseIds) {
+        return ResponseEntity.ok(ratingService.getCourseRatingAggregates(courseIds));
+    }
+    
+    @GetMapping("/course/{courseId}/stats")
+    public ResponseEntity<Map<String, Object>> getCourseWindowStats(
+            @PathVariable Long courseId,
+            @RequestParam(defaultValue = "7d") String window) {
+        int days = parseWindowDays(window);
+        CourseRatingWindowStats.WindowTotals totals = courseRatingWindowStats.getTotals(courseId, days);
         
         return ResponseEntity.ok(Map.of(
                 "courseId", courseId,
-                "averageRating", avgRating,
-                "totalRatings", totalRatings
+                "window", days + "d",
+                "averageRating", totals.averageRating(),
+                "totalRatings", totals.count()
         ));
     }
+    
+    private ResponseEntity<Object> ingestRating(RatingRequest request) {
+        RatingIngestStatus status = ratingIngestBuffer.submit(
+                request.getUserId(),
+                request.getCourseId(),
+                request.getRating(),
+                request.getComment()
+        );
+        
+        if (status.getState() == RatingIngestStatus.State.FAILED) {
+            throw new RuntimeException(status.getError());
+        }
+        if (status.getState() == RatingIngestStatus.State.COMMITTED) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(status);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/ratings/ingest/" + status.getTrackingId()))
+                .body(status);
+    }
+    
+    private int parseWindowDays(String window) {
+        if (!window.matches("\\d{1,4}d")) {
+            throw new RuntimeException("window must look like 7d or 30d");
+        }
+        return Integer.parseInt(window.substring(0, window.length() - 1));
+    }
+    
+    private boolean isCompact(String fields) {
+        return "compact".equalsIgnoreCase(fields);
+    }
+    
+    private <T> ResponseEntity<List<T>> pageResponse(RatingPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getItems());
+    }
+    
+    private ResponseEntity<StreamingResponseBody> ndjsonResponse(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
 }
 
 record RatingRequest(Long userId, Long courseId, Integer rating, String comment) {
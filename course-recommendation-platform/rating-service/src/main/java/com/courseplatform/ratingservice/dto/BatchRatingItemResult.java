@@ -0,0 +1,19 @@
+package com.courseplatform.ratingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRatingItemResult {
+    private Integer index;
+    private Long userId;
+    private Long courseId;
+    private Long ratingId;
+    private boolean success;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.courseplatform.ratingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRatingResponse {
+    private Integer total;
+    private Integer created;
+    private Integer failed;
+    private List<BatchRatingItemResult> results;
+}
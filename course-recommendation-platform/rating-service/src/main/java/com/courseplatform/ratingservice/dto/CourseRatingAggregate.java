@@ -0,0 +1,5 @@
+package com.courseplatform.ratingservice.dto;
+
+// Per-course entry of the bulk stats response, keyed by courseId
+public record CourseRatingAggregate(double averageRating, long totalRatings) {
+}
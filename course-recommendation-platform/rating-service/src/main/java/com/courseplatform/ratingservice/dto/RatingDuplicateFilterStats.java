@@ -0,0 +1,26 @@
+package com.courseplatform.ratingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingDuplicateFilterStats {
+    private boolean ready;
+    // Pairs the filter was sized for; past this the false-positive rate climbs until the next rebuild
+    private long capacity;
+    private long insertions;
+    private long bits;
+    private int hashFunctions;
+    private long memoryBytes;
+    // Probability that a pair never added is reported as "maybe", from the current fill
+    private double expectedFalsePositiveRate;
+    // Share of "maybe" answers the database then contradicted, since startup
+    private double observedFalsePositiveRate;
+    private long lastRebuildMs;
+    private long lastRebuildRows;
+}
@@ -0,0 +1,20 @@
+package com.courseplatform.ratingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingExportSummary {
+    private long rows;
+    // Pass as since to the next export to get only what changed afterwards; rows near it may come again
+    private LocalDateTime watermark;
+    // Only set for exports written to a local file
+    private String file;
+}
@@ -0,0 +1,27 @@
+package com.courseplatform.ratingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingIngestStatus {
+    
+    public enum State {
+        PENDING,
+        COMMITTED,
+        FAILED
+    }
+    
+    private String trackingId;
+    private State state;
+    private Long userId;
+    private Long courseId;
+    // Only set once the rating is committed
+    private Long ratingId;
+    private String error;
+}
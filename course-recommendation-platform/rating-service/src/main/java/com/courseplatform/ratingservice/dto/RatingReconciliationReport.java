@@ -0,0 +1,25 @@
+package com.courseplatform.ratingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingReconciliationReport {
+    private LocalDateTime startedAt;
+    private long durationMs;
+    private long ratingsScanned;
+    private long coursesScanned;
+    // Courses whose aggregate differed from what was last pushed and were sent to course-service
+    private long coursesCorrected;
+    // Courses in batches course-service did not accept; they are retried by the next run
+    private long coursesFailed;
+    // course_rating_stats rows that no longer matched the ratings table and were recounted
+    private long statsRebuilt;
+}
@@ -0,0 +1,7 @@
+package com.courseplatform.ratingservice.dto;
+
+import java.time.LocalDateTime;
+
+// Comment-free view of a rating, read with a constructor projection so the TEXT column is never fetched
+public record RatingSummary(Long id, Long userId, Long courseId, Integer rating, LocalDateTime updatedAt) {
+}
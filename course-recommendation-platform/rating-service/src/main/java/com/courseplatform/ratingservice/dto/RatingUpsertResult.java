@@ -0,0 +1,25 @@
+package com.courseplatform.ratingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingUpsertResult {
+    private Long ratingId;
+    private Long userId;
+    private Long courseId;
+    private Integer rating;
+    private String comment;
+    private boolean created;
+    private boolean changed;
+    // Only set when an existing rating was updated
+    private Integer previousRating;
+    private LocalDateTime previousUpdatedAt;
+}
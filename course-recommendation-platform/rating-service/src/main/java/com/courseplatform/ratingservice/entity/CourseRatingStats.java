@@ -0,0 +1,51 @@
+package com.courseplatform.ratingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "course_rating_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseRatingStats {
+    
+    @Id
+    @Column(name = "course_id")
+    private Long courseId;
+    
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum;
+    
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount;
+    
+    // Histogram of ratings by star value
+    @Column(name = "count_1", nullable = false)
+    private Long count1;
+    
+    @Column(name = "count_2", nullable = false)
+    private Long count2;
+    
+    @Column(name = "count_3", nullable = false)
+    private Long count3;
+    
+    @Column(name = "count_4", nullable = false)
+    private Long count4;
+    
+    @Column(name = "count_5", nullable = false)
+    private Long count5;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public double averageRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+}
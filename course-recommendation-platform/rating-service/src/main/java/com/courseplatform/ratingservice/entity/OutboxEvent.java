@@ -0,0 +1,80 @@
+package com.courseplatform.ratingservice.entity;
+
+import com.courseplatform.common.dto.RatingEvent;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "rating_outbox", indexes = {
+    @Index(name = "idx_rating_outbox_sent_at", columnList = "sent_at, id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "rating_id")
+    private Long ratingId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+    
+    @Column(nullable = false)
+    private Integer rating;
+    
+    @Column(columnDefinition = "TEXT")
+    private String comment;
+    
+    @Column(name = "event_timestamp", nullable = false)
+    private LocalDateTime eventTimestamp;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    // Set while a relay publishes the row; once it passes, another relay may take the row over
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    public static OutboxEvent from(RatingEvent event) {
+        return OutboxEvent.builder()
+                .ratingId(event.getId())
+                .userId(event.getUserId())
+                .courseId(event.getCourseId())
+                .rating(event.getRating())
+                .comment(event.getComment())
+                .eventTimestamp(event.getTimestamp())
+                .build();
+    }
+    
+    public RatingEvent toRatingEvent() {
+        return RatingEvent.builder()
+                .id(ratingId)
+                .userId(userId)
+                .courseId(courseId)
+                .rating(rating)
+                .comment(comment)
+                .timestamp(eventTimestamp)
+                .build();
+    }
+}
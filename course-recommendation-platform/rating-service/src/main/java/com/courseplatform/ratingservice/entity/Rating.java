@@ -11,6 +11,10 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "ratings", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"user_id", "course_id"})
+}, indexes = {
+    @Index(name = "idx_ratings_course_id_id", columnList = "course_id, id"),
+    @Index(name = "idx_ratings_user_id_id", columnList = "user_id, id"),
+    @Index(name = "idx_ratings_updated_at", columnList = "updated_at")
 })
 @Data
 @Builder
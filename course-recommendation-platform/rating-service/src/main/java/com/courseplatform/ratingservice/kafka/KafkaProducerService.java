@@ -8,7 +8,10 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -16,11 +19,64 @@ import java.util.concurrent.CompletableFuture;
 public class KafkaProducerService {
     
     private final KafkaTemplate<String, RatingEvent> kafkaTemplate;
+    private final RatingEventSpool ratingEventSpool;
     
     @Value("${kafka.topic.ratings}")
     private String ratingsTopic;
     
-    public void sendRatingEvent(RatingEvent event) {
+    public CompletableFuture<Void> sendRatingEvents(List<RatingEvent> events) {
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        // Queue every record first so the producer can pack them into as few requests as possible
+        CompletableFuture<?>[] futures = events.stream()
+                .map(this::send)
+                .toArray(CompletableFuture[]::new);
+        kafkaTemplate.flush();
+        log.info("Rating event batch sent: size={}", events.size());
+        return CompletableFuture.allOf(futures);
+    }
+    
+    // Publishes the events and spools whichever did not complete within the timeout; returns the number spooled.
+    // Throws if the spool itself cannot take them, so the caller can keep its own copy.
+    public int publishOrSpool(List<RatingEvent> events, long timeoutMs) {
+        // While older events wait in the spool, newer ones queue behind them; publishing them directly could let
+        // a replayed event overwrite a newer one for the same user and course
+        if (ratingEventSpool.getDepth() > 0) {
+            ratingEventSpool.append(events);
+            log.debug("Rating events spooled behind pending replay: size={}", events.size());
+            return events.size();
+        }
+        
+        List<CompletableFuture<SendResult<String, RatingEvent>>> futures = events.stream()
+                .map(this::send)
+                .toList();
+        kafkaTemplate.flush();
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Individual failures are picked out below
+        }
+        
+        List<RatingEvent> failed = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<?> future = futures.get(i);
+            // A send that timed out may still land later; replaying it as well gives at-least-once delivery
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                failed.add(events.get(i));
+            }
+        }
+        if (!failed.isEmpty()) {
+            ratingEventSpool.append(failed);
+            log.warn("Rating events spooled after failed publish: failed={}, total={}", failed.size(), events.size());
+        }
+        return failed.size();
+    }
+    
+    private CompletableFuture<SendResult<String, RatingEvent>> send(RatingEvent event) {
         String key = event.getUserId() + "-" + event.getCourseId();
         
         CompletableFuture<SendResult<String, RatingEvent>> future = 
@@ -28,7 +84,7 @@ public class KafkaProducerService {
         
         future.whenComplete((result, ex) -> {
             if (ex == null) {
-                log.info("Rating event sent successfully: userId={}, courseId={}, partition={}, offset={}",
+                log.debug("Rating event sent successfully: userId={}, courseId={}, partition={}, offset={}",
                         event.getUserId(),
                         event.getCourseId(),
                         result.getRecordMetadata().partition(),
@@ -40,5 +96,6 @@ public class KafkaProducerService {
                         ex.getMessage());
             }
         });
+        return future;
     }
 }
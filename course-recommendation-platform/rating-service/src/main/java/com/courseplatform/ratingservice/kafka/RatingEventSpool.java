@@ -0,0 +1,290 @@
+package com.courseplatform.ratingservice.kafka;
+
+import com.courseplatform.common.dto.RatingEvent;
+import com.courseplatform.common.kafka.RatingEventCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, memory-mapped spool for rating events that could not be published to Kafka.
+ *
+ * <pre>
+ * segment   8-byte header (magic, read offset) followed by records
+ * record    4-byte payload length, 8-byte spooled-at epoch millis, RatingEventCodec payload
+ * </pre>
+ *
+ * A zero length marks the end of the written part of a segment. The read offset in the header is
+ * the replay checkpoint, so a restart resumes where the replayer stopped. Fully replayed segments
+ * are deleted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RatingEventSpool {
+    
+    private static final int SEGMENT_MAGIC = 0x52535031;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 4 + 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${rating.spool.dir:${java.io.tmpdir}/rating-spool}")
+    private String dir;
+    
+    @Value("${rating.spool.segment-bytes:16777216}")
+    private int segmentBytes;
+    
+    // Oldest first; the last segment is the one being appended to
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final AtomicLong depth = new AtomicLong();
+    private long nextSequence;
+    
+    private Counter spooledCounter;
+    
+    @PostConstruct
+    synchronized void open() throws IOException {
+        Path directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(directory)) {
+            existing = files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path path : existing) {
+            Segment segment = Segment.open(path, sequenceOf(path), segmentBytes);
+            segments.addLast(segment);
+            depth.addAndGet(segment.recover());
+            nextSequence = segment.sequence + 1;
+        }
+        if (segments.isEmpty()) {
+            rotate(segmentBytes);
+        }
+        
+        spooledCounter = meterRegistry.counter("rating.spool.spooled");
+        Gauge.builder("rating.spool.depth", depth, AtomicLong::get)
+                .description("Rating events waiting in the spool for replay")
+                .register(meterRegistry);
+        Gauge.builder("rating.spool.segments", this, RatingEventSpool::segmentCount)
+                .register(meterRegistry);
+        TimeGauge.builder("rating.spool.oldest.age", this, TimeUnit.MILLISECONDS, RatingEventSpool::oldestAgeMillis)
+                .description("Age of the oldest event still waiting in the spool")
+                .register(meterRegistry);
+        
+        if (depth.get() > 0) {
+            log.warn("Rating event spool recovered: depth={}, segments={}", depth.get(), segments.size());
+        }
+    }
+    
+    @PreDestroy
+    synchronized void close() {
+        segments.forEach(segment -> segment.buffer.force());
+    }
+    
+    public synchronized void append(List<RatingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        for (RatingEvent event : events) {
+            byte[] payload = RatingEventCodec.encode(event);
+            int recordSize = RECORD_HEADER_SIZE + payload.length;
+            
+            Segment active = segments.peekLast();
+            // Keep 4 spare bytes so the zero end marker always fits
+            if (active.writeOffset + recordSize + 4 > active.buffer.capacity()) {
+                active.buffer.force();
+                // A record bigger than segment-bytes gets a segment sized to fit it rather than being refused
+                active = rotate(Math.max(segmentBytes, HEADER_SIZE + recordSize + 4));
+            }
+            
+            int offset = active.writeOffset;
+            active.buffer.putLong(offset + 4, now);
+            active.buffer.put(offset + RECORD_HEADER_SIZE, payload);
+            // Length goes in last so a torn write never looks like a complete record
+            active.buffer.putInt(offset, payload.length);
+            active.writeOffset = offset + recordSize;
+            active.unread++;
+        }
+        segments.peekLast().buffer.force();
+        
+        depth.addAndGet(events.size());
+        spooledCounter.increment(events.size());
+    }
+    
+    // Reads up to maxEvents from the oldest segment without consuming them; pass the batch to commit once replayed
+    public synchronized Batch peek(int maxEvents) {
+        discardConsumedSegments();
+        Segment oldest = segments.peekFirst();
+        
+        List<RatingEvent> events = new ArrayList<>();
+        int records = 0;
+        int offset = oldest.readOffset;
+        while (records < maxEvents && offset < oldest.writeOffset) {
+            int length = oldest.buffer.getInt(offset);
+            if (length <= 0 || length > oldest.writeOffset - offset - RECORD_HEADER_SIZE) {
+                // The record boundaries can't be trusted past this point, so give up on the rest of the segment
+                log.error("Skipping corrupt rest of spool segment: segment={}, offset={}, length={}",
+                        oldest.path.getFileName(), offset, length);
+                records = oldest.unread;
+                offset = oldest.writeOffset;
+                break;
+            }
+            byte[] payload = new byte[length];
+            oldest.buffer.get(offset + RECORD_HEADER_SIZE, payload);
+            try {
+                events.add(RatingEventCodec.decode(payload));
+            } catch (RuntimeException e) {
+                // A bad record must not stop replay, so it is dropped rather than retried
+                log.error("Skipping unreadable spooled rating event: segment={}, offset={}, error={}",
+                        oldest.path.getFileName(), offset, e.getMessage());
+            }
+            records++;
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return new Batch(oldest, events, records, offset);
+    }
+    
+    public synchronized void commit(Batch batch) {
+        Segment segment = batch.segment();
+        segment.readOffset = batch.endOffset();
+        segment.unread -= batch.records();
+        segment.buffer.putInt(4, batch.endOffset());
+        segment.buffer.force(0, HEADER_SIZE);
+        depth.addAndGet(-batch.records());
+        discardConsumedSegments();
+    }
+    
+    public long getDepth() {
+        return depth.get();
+    }
+    
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+    
+    public synchronized long oldestAgeMillis() {
+        for (Segment segment : segments) {
+            if (segment.readOffset < segment.writeOffset) {
+                return System.currentTimeMillis() - segment.buffer.getLong(segment.readOffset + 4);
+            }
+        }
+        return 0;
+    }
+    
+    private Segment rotate(int size) {
+        long sequence = nextSequence++;
+        Path path = Paths.get(dir, String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        try {
+            Segment segment = Segment.open(path, sequence, size);
+            segment.buffer.putInt(0, SEGMENT_MAGIC);
+            segment.buffer.putInt(4, HEADER_SIZE);
+            segment.readOffset = HEADER_SIZE;
+            segment.writeOffset = HEADER_SIZE;
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create spool segment " + path, e);
+        }
+    }
+    
+    private void discardConsumedSegments() {
+        while (segments.size() > 1 && segments.peekFirst().readOffset >= segments.peekFirst().writeOffset) {
+            Segment consumed = segments.removeFirst();
+            try {
+                Files.deleteIfExists(consumed.path);
+            } catch (IOException e) {
+                log.warn("Failed to delete replayed spool segment {}: {}", consumed.path, e.getMessage());
+            }
+        }
+    }
+    
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+    
+    public record Batch(Segment segment, List<RatingEvent> events, int records, int endOffset) {
+        
+        public boolean isEmpty() {
+            return records == 0;
+        }
+    }
+    
+    static final class Segment {
+        
+        private final Path path;
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+        private int readOffset;
+        private int writeOffset;
+        // Records between readOffset and writeOffset
+        private int unread;
+        
+        private Segment(Path path, long sequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+        
+        static Segment open(Path path, long sequence, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Never map less than an existing file holds, in case segment-bytes was lowered since it was written
+                long mappedSize = Math.max(channel.size(), size);
+                // The mapping stays valid after the channel is closed
+                return new Segment(path, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+            }
+        }
+        
+        // Restores the read checkpoint and finds the end of the written records; returns the unread count
+        int recover() throws IOException {
+            if (buffer.getInt(0) != SEGMENT_MAGIC) {
+                throw new IOException("Not a rating spool segment: " + path);
+            }
+            readOffset = buffer.getInt(4);
+            int offset = readOffset;
+            int unread = 0;
+            while (offset + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                offset += RECORD_HEADER_SIZE + length;
+                unread++;
+            }
+            writeOffset = offset;
+            this.unread = unread;
+            return unread;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.courseplatform.ratingservice.kafka;
+
+import com.courseplatform.common.dto.RatingEvent;
+import com.courseplatform.ratingservice.entity.OutboxEvent;
+import com.courseplatform.ratingservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingOutboxRelay {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${rating.outbox.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${rating.outbox.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+    
+    @Value("${rating.outbox.retention-hours:24}")
+    private long retentionHours;
+    
+    private Counter publishedCounter;
+    
+    @PostConstruct
+    void registerMetrics() {
+        publishedCounter = meterRegistry.counter("rating.outbox.published");
+        Gauge.builder("rating.outbox.pending", outboxEventRepository, OutboxEventRepository::countBySentAtIsNull)
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "${rating.outbox.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            // Keep draining while full batches come back so a backlog clears without waiting for the next tick
+            int published;
+            do {
+                published = relayBatch();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            log.error("Failed to relay outbox events: {}", e.getMessage());
+        }
+    }
+    
+    public int relayBatch() {
+        // Claimed in a short transaction of its own so no row lock or connection is held while waiting on Kafka.
+        // The claim outlasts a full send timeout; if this instance dies first, the rows go to the next relay.
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> claimable = outboxEventRepository.findClaimableForUpdate(now, PageRequest.of(0, batchSize));
+            if (!claimable.isEmpty()) {
+                outboxEventRepository.claim(ids(claimable), now.plus(Duration.ofMillis(2 * sendTimeoutMs)));
+            }
+            return claimable;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        
+        List<RatingEvent> events = batch.stream()
+                .map(OutboxEvent::toRatingEvent)
+                .toList();
+        // Events the broker did not take go to the local spool, so a broker outage doesn't back up the outbox.
+        // If spooling fails too the rows stay unsent and are retried once the claim runs out.
+        kafkaProducerService.publishOrSpool(events, sendTimeoutMs);
+        
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.markSent(ids(batch), LocalDateTime.now()));
+        publishedCounter.increment(batch.size());
+        log.debug("Outbox batch relayed: size={}", batch.size());
+        return batch.size();
+    }
+    
+    @Scheduled(fixedDelayString = "${rating.outbox.cleanup-interval-ms:3600000}")
+    public void purgeSent() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deleteSentBefore(cutoff));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged sent outbox events: count={}", deleted);
+        }
+    }
+    
+    private static List<Long> ids(List<OutboxEvent> batch) {
+        return batch.stream().map(OutboxEvent::getId).toList();
+    }
+}
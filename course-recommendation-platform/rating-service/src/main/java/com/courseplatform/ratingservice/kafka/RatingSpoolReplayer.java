@@ -0,0 +1,71 @@
+package com.courseplatform.ratingservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingSpoolReplayer {
+    
+    private final RatingEventSpool ratingEventSpool;
+    private final KafkaProducerService kafkaProducerService;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${rating.spool.replay-batch-size:500}")
+    private int batchSize;
+    
+    @Value("${rating.spool.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+    
+    private Counter replayedCounter;
+    
+    @PostConstruct
+    void registerMetrics() {
+        replayedCounter = meterRegistry.counter("rating.spool.replayed");
+    }
+    
+    @Scheduled(fixedDelayString = "${rating.spool.replay-interval-ms:1000}")
+    public void replay() {
+        if (ratingEventSpool.getDepth() == 0) {
+            return;
+        }
+        try {
+            int replayed;
+            do {
+                replayed = replayBatch();
+            } while (replayed > 0);
+            log.info("Rating event spool drained");
+        } catch (Exception e) {
+            // Broker still unreachable; the events stay spooled until the next run
+            log.warn("Failed to replay spooled rating events: depth={}, error={}",
+                    ratingEventSpool.getDepth(), e.getMessage());
+        }
+    }
+    
+    public int replayBatch() {
+        RatingEventSpool.Batch batch = ratingEventSpool.peek(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        
+        try {
+            kafkaProducerService.sendRatingEvents(batch.events()).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException("Kafka publish failed: " + e.getMessage(), e);
+        }
+        
+        ratingEventSpool.commit(batch);
+        replayedCounter.increment(batch.events().size());
+        log.debug("Spooled rating events replayed: size={}", batch.events().size());
+        return batch.records();
+    }
+}
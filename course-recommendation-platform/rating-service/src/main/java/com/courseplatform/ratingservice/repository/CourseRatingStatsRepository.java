@@ -0,0 +1,85 @@
+package com.courseplatform.ratingservice.repository;
+
+import com.courseplatform.ratingservice.entity.CourseRatingStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CourseRatingStatsRepository extends JpaRepository<CourseRatingStats, Long> {
+    
+    // Seeds a missing row from the course's ratings, including the ones the current transaction already wrote
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO course_rating_stats " +
+            "(course_id, rating_sum, rating_count, count_1, count_2, count_3, count_4, count_5, updated_at) " +
+            "SELECT :courseId, COALESCE(SUM(rating), 0), COUNT(*), " +
+            "COALESCE(SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END), 0), " +
+            "CURRENT_TIMESTAMP " +
+            "FROM ratings WHERE course_id = :courseId ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertFromRatingsIfAbsent(@Param("courseId") Long courseId);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CourseRatingStats s SET " +
+            "s.ratingSum = s.ratingSum + :sumDelta, " +
+            "s.ratingCount = s.ratingCount + :countDelta, " +
+            "s.count1 = s.count1 + :delta1, " +
+            "s.count2 = s.count2 + :delta2, " +
+            "s.count3 = s.count3 + :delta3, " +
+            "s.count4 = s.count4 + :delta4, " +
+            "s.count5 = s.count5 + :delta5, " +
+            "s.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE s.courseId = :courseId")
+    int applyDelta(@Param("courseId") Long courseId,
+                   @Param("sumDelta") long sumDelta,
+                   @Param("countDelta") long countDelta,
+                   @Param("delta1") long delta1,
+                   @Param("delta2") long delta2,
+                   @Param("delta3") long delta3,
+                   @Param("delta4") long delta4,
+                   @Param("delta5") long delta5);
+    
+    @Modifying
+    @Query(value = "INSERT INTO course_rating_stats " +
+            "(course_id, rating_sum, rating_count, count_1, count_2, count_3, count_4, count_5, updated_at) " +
+            "SELECT course_id, SUM(rating), COUNT(*), " +
+            "SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END), " +
+            "CURRENT_TIMESTAMP " +
+            "FROM ratings r WHERE NOT EXISTS " +
+            "(SELECT 1 FROM course_rating_stats s WHERE s.course_id = r.course_id) " +
+            "GROUP BY course_id ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertMissingFromRatings();
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CourseRatingStats s WHERE s.courseId = :courseId")
+    Optional<CourseRatingStats> findByIdForUpdate(@Param("courseId") Long courseId);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE course_rating_stats SET " +
+            "rating_count = (SELECT COUNT(*) FROM ratings r WHERE r.course_id = :courseId), " +
+            "rating_sum = (SELECT COALESCE(SUM(r.rating), 0) FROM ratings r WHERE r.course_id = :courseId), " +
+            "count_1 = (SELECT COUNT(*) FROM ratings r WHERE r.course_id = :courseId AND r.rating = 1), " +
+            "count_2 = (SELECT COUNT(*) FROM ratings r WHERE r.course_id = :courseId AND r.rating = 2), " +
+            "count_3 = (SELECT COUNT(*) FROM ratings r WHERE r.course_id = :courseId AND r.rating = 3), " +
+            "count_4 = (SELECT COUNT(*) FROM ratings r WHERE r.course_id = :courseId AND r.rating = 4), " +
+            "count_5 = (SELECT COUNT(*) FROM ratings r WHERE r.course_id = :courseId AND r.rating = 5), " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE course_id = :courseId",
+            nativeQuery = true)
+    int recountFromRatings(@Param("courseId") Long courseId);
+}
@@ -0,0 +1,55 @@
+package com.courseplatform.ratingservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CourseRatingTotalsRepository {
+    
+    // Totals recomputed from ratings next to the stored course_rating_stats row (NULL when it is missing)
+    private static final String COURSE_TOTALS_SQL =
+            "SELECT t.*, s.rating_count AS stats_count, s.rating_sum AS stats_sum, " +
+            "s.count_1 AS stats_1, s.count_2 AS stats_2, s.count_3 AS stats_3, s.count_4 AS stats_4, s.count_5 AS stats_5 " +
+            "FROM (SELECT course_id, COUNT(*) AS rating_count, SUM(rating) AS rating_sum, " +
+            "SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END) AS count_1, " +
+            "SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END) AS count_2, " +
+            "SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END) AS count_3, " +
+            "SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END) AS count_4, " +
+            "SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END) AS count_5 " +
+            "FROM ratings GROUP BY course_id) t " +
+            "LEFT JOIN course_rating_stats s ON s.course_id = t.course_id";
+    
+    private static final String STATS_WITHOUT_RATINGS_SQL =
+            "SELECT s.course_id FROM course_rating_stats s WHERE s.rating_count <> 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM ratings r WHERE r.course_id = s.course_id)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${rating.export.fetch-size:5000}")
+    private int fetchSize;
+    
+    // One pass over ratings aggregated in the database; only a row per course comes back over the wire.
+    // Must run inside a transaction: the PostgreSQL driver only uses a server-side cursor when autocommit is off
+    public void scan(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(COURSE_TOTALS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+    
+    // Stats rows still counting ratings for courses whose ratings are all gone; the GROUP BY never sees them
+    public List<Long> findStatsWithoutRatings() {
+        return jdbcTemplate.queryForList(STATS_WITHOUT_RATINGS_SQL, Long.class);
+    }
+}
@@ -0,0 +1,140 @@
+package com.courseplatform.ratingservice.repository;
+
+import com.courseplatform.common.dto.RatingEvent;
+import com.courseplatform.ratingservice.dto.RatingUpsertResult;
+import com.courseplatform.ratingservice.entity.Rating;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class RatingBatchRepository {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO ratings (user_id, course_id, rating, comment, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+    
+    private static final String INSERT_OUTBOX_SQL =
+            "INSERT INTO rating_outbox (rating_id, user_id, course_id, rating, comment, event_timestamp, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    // One round trip: lock and read the current row, upsert only if something differs, and report
+    // the row id, whether it was an insert, and the previous rating for aggregate deltas.
+    // The INSERT selects from "old" so the row lock is taken before the upsert touches the row.
+    private static final String UPSERT_SQL =
+            "WITH old AS (" +
+            "  SELECT id, rating, updated_at FROM ratings WHERE user_id = ? AND course_id = ? FOR UPDATE" +
+            "), upsert AS (" +
+            "  INSERT INTO ratings (user_id, course_id, rating, comment, created_at, updated_at) " +
+            "  SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS INTEGER), CAST(? AS TEXT), " +
+            "         CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP) " +
+            "  FROM (SELECT 1) AS one LEFT JOIN old ON TRUE " +
+            "  ON CONFLICT (user_id, course_id) DO UPDATE " +
+            "  SET rating = EXCLUDED.rating, comment = EXCLUDED.comment, updated_at = EXCLUDED.updated_at " +
+            "  WHERE ratings.rating IS DISTINCT FROM EXCLUDED.rating " +
+            "     OR ratings.comment IS DISTINCT FROM EXCLUDED.comment " +
+            "  RETURNING id, (xmax = 0) AS inserted" +
+            ") " +
+            "SELECT upsert.id AS upsert_id, upsert.inserted, old.id AS old_id, old.rating AS previous_rating, " +
+            "       old.updated_at AS previous_updated_at " +
+            "FROM (SELECT 1) AS one " +
+            "LEFT JOIN upsert ON TRUE " +
+            "LEFT JOIN old ON TRUE";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${rating.batch.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+    
+    // Hibernate can't batch IDENTITY inserts, so bulk writes go through plain JDBC batches
+    public void insertAll(List<Rating> ratings) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        
+        for (int from = 0; from < ratings.size(); from += jdbcBatchSize) {
+            List<Rating> chunk = ratings.subList(from, Math.min(from + jdbcBatchSize, ratings.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Rating rating = chunk.get(i);
+                            ps.setLong(1, rating.getUserId());
+                            ps.setLong(2, rating.getCourseId());
+                            ps.setInt(3, rating.getRating());
+                            ps.setString(4, rating.getComment());
+                            ps.setTimestamp(5, timestamp);
+                            ps.setTimestamp(6, timestamp);
+                        }
+                        
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keyHolder);
+            
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < chunk.size(); i++) {
+                Rating rating = chunk.get(i);
+                rating.setId(((Number) keys.get(i).get("id")).longValue());
+                rating.setCreatedAt(now);
+                rating.setUpdatedAt(now);
+            }
+        }
+    }
+    
+    public void insertOutboxEvents(List<RatingEvent> events) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, events, jdbcBatchSize, (ps, event) -> {
+            ps.setLong(1, event.getId());
+            ps.setLong(2, event.getUserId());
+            ps.setLong(3, event.getCourseId());
+            ps.setInt(4, event.getRating());
+            ps.setString(5, event.getComment());
+            ps.setTimestamp(6, Timestamp.valueOf(event.getTimestamp()));
+            ps.setTimestamp(7, now);
+        });
+    }
+    
+    public RatingUpsertResult upsert(Long userId, Long courseId, Integer rating, String comment) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        
+        return jdbcTemplate.queryForObject(UPSERT_SQL, (rs, rowNum) -> {
+            long upsertId = rs.getLong("upsert_id");
+            boolean written = !rs.wasNull();
+            boolean inserted = written && rs.getBoolean("inserted");
+            long oldId = rs.getLong("old_id");
+            boolean existed = !rs.wasNull();
+            int previousRating = rs.getInt("previous_rating");
+            Timestamp previousUpdatedAt = rs.getTimestamp("previous_updated_at");
+            boolean updated = written && !inserted && existed;
+            
+            return RatingUpsertResult.builder()
+                    .ratingId(written ? Long.valueOf(upsertId) : existed ? Long.valueOf(oldId) : null)
+                    .userId(userId)
+                    .courseId(courseId)
+                    .rating(rating)
+                    .comment(comment)
+                    .created(inserted)
+                    .changed(written)
+                    .previousRating(updated ? previousRating : null)
+                    .previousUpdatedAt(updated && previousUpdatedAt != null ? previousUpdatedAt.toLocalDateTime() : null)
+                    .build();
+        }, userId, courseId, userId, courseId, rating, comment, now, now);
+    }
+}
@@ -0,0 +1,39 @@
+package com.courseplatform.ratingservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Repository
+@RequiredArgsConstructor
+public class RatingExportRepository {
+    
+    private static final String SELECT_SQL = "SELECT id, user_id, course_id, rating, updated_at FROM ratings";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${rating.export.fetch-size:5000}")
+    private int fetchSize;
+    
+    // Must run inside a transaction: the PostgreSQL driver only uses a server-side cursor when autocommit is off
+    public void scan(LocalDateTime since, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    since != null ? SELECT_SQL + " WHERE updated_at > ? ORDER BY id" : SELECT_SQL + " ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            if (since != null) {
+                ps.setTimestamp(1, Timestamp.valueOf(since));
+            }
+            return ps;
+        }, handler);
+    }
+}
@@ -0,0 +1,34 @@
+package com.courseplatform.ratingservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+@Repository
+@RequiredArgsConstructor
+public class RatingPairRepository {
+    
+    private static final String PAIRS_SQL = "SELECT user_id, course_id FROM ratings";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${rating.export.fetch-size:5000}")
+    private int fetchSize;
+    
+    // Streams every (user_id, course_id) pair. Must run inside a transaction: the PostgreSQL driver only
+    // uses a server-side cursor when autocommit is off
+    public void scan(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(PAIRS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+}
@@ -1,13 +1,23 @@
 package com.courseplatform.ratingservice.repository;
 
+import com.courseplatform.ratingservice.dto.RatingSummary;
 import com.courseplatform.ratingservice.entity.Rating;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface RatingRepository extends JpaRepository<Rating, Long> {
@@ -16,8 +26,42 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
     
     List<Rating> findByCourseId(Long courseId);
     
+    // Keyset pages: served straight from the (user_id, id) / (course_id, id) indexes
+    List<Rating> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Limit limit);
+    
+    List<Rating> findByCourseIdAndIdGreaterThanOrderByIdAsc(Long courseId, Long afterId, Limit limit);
+    
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r FROM Rating r WHERE r.userId = :userId ORDER BY r.id")
+    Stream<Rating> streamByUserId(@Param("userId") Long userId);
+    
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r FROM Rating r WHERE r.courseId = :courseId ORDER BY r.id")
+    Stream<Rating> streamByCourseId(@Param("courseId") Long courseId);
+    
     Optional<Rating> findByUserIdAndCourseId(Long userId, Long courseId);
     
+    @Query("SELECT new com.courseplatform.ratingservice.dto.RatingSummary(r.id, r.userId, r.courseId, r.rating, r.updatedAt) " +
+            "FROM Rating r WHERE r.userId = :userId AND r.id > :afterId ORDER BY r.id")
+    List<RatingSummary> findSummariesByUserId(@Param("userId") Long userId, @Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT new com.courseplatform.ratingservice.dto.RatingSummary(r.id, r.userId, r.courseId, r.rating, r.updatedAt) " +
+            "FROM Rating r WHERE r.courseId = :courseId AND r.id > :afterId ORDER BY r.id")
+    List<RatingSummary> findSummariesByCourseId(@Param("courseId") Long courseId, @Param("afterId") Long afterId, Limit limit);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.courseplatform.ratingservice.dto.RatingSummary(r.id, r.userId, r.courseId, r.rating, r.updatedAt) " +
+            "FROM Rating r WHERE r.userId = :userId ORDER BY r.id")
+    Stream<RatingSummary> streamSummariesByUserId(@Param("userId") Long userId);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.courseplatform.ratingservice.dto.RatingSummary(r.id, r.userId, r.courseId, r.rating, r.updatedAt) " +
+            "FROM Rating r WHERE r.courseId = :courseId ORDER BY r.id")
+    Stream<RatingSummary> streamSummariesByCourseId(@Param("courseId") Long courseId);
+    
+    @Query("SELECT r.comment FROM Rating r WHERE r.userId = :userId AND r.courseId = :courseId")
+    Optional<String> findCommentByUserIdAndCourseId(@Param("userId") Long userId, @Param("courseId") Long courseId);
+    
     @Query("SELECT AVG(r.rating) FROM Rating r WHERE r.courseId = :courseId")
     Double getAverageRatingByCourseId(@Param("courseId") Long courseId);
     
@@ -25,4 +69,13 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
     Integer getTotalRatingsByCourseId(@Param("courseId") Long courseId);
     
     boolean existsByUserIdAndCourseId(Long userId, Long courseId);
+    
+    @Query("SELECT r.userId, r.courseId FROM Rating r WHERE r.userId IN :userIds AND r.courseId IN :courseIds")
+    List<Object[]> findUserCoursePairs(@Param("userIds") Collection<Long> userIds,
+                                       @Param("courseIds") Collection<Long> courseIds);
+    
+    // Rows: courseId, day of last write, count, rating sum
+    @Query("SELECT r.courseId, cast(r.updatedAt as LocalDate), COUNT(r), SUM(r.rating) FROM Rating r " +
+            "WHERE r.updatedAt >= :since GROUP BY r.courseId, cast(r.updatedAt as LocalDate)")
+    List<Object[]> sumByCourseAndDaySince(@Param("since") LocalDateTime since);
 }
@@ -0,0 +1,177 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.entity.CourseRatingStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourseRatingPropagator {
+    
+    private final CourseRatingStatsService courseRatingStatsService;
+    private final RestTemplate restTemplate;
+    private final CourseRatingReconciler courseRatingReconciler;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${services.course-service.url}")
+    private String courseServiceUrl;
+    
+    @Value("${rating.propagation.window-ms:500}")
+    private long windowMs;
+    
+    @Value("${rating.propagation.queue-capacity:10000}")
+    private int queueCapacity;
+    
+    @Value("${rating.propagation.max-attempts:5}")
+    private int maxAttempts;
+    
+    @Value("${rating.propagation.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+    
+    @Value("${rating.propagation.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+    
+    // courseId -> time it first became dirty, so the lag covers coalescing and retries
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> attempts = new ConcurrentHashMap<>();
+    private BlockingQueue<Long> queue;
+    private ScheduledExecutorService scheduler;
+    
+    private Timer lagTimer;
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter droppedCounter;
+    
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        lagTimer = Timer.builder("rating.propagation.lag")
+                .description("Time from a course becoming dirty to course-service acknowledging it")
+                .register(meterRegistry);
+        sentCounter = meterRegistry.counter("rating.propagation.sent");
+        failedCounter = meterRegistry.counter("rating.propagation.failed");
+        droppedCounter = meterRegistry.counter("rating.propagation.dropped");
+        Gauge.builder("rating.propagation.queue.depth", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "course-rating-propagator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    void stop() {
+        scheduler.shutdown();
+        // Best effort: deliver whatever is still queued before the context goes away
+        flush();
+    }
+    
+    public void markDirty(Long courseId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only propagate data that actually committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(courseId);
+                }
+            });
+        } else {
+            enqueue(courseId);
+        }
+    }
+    
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    private void enqueue(Long courseId) {
+        enqueue(courseId, System.nanoTime());
+    }
+    
+    private void enqueue(Long courseId, long dirtySince) {
+        // Already pending: the queued push will pick up the latest aggregate anyway
+        if (pending.putIfAbsent(courseId, dirtySince) != null) {
+            return;
+        }
+        if (!queue.offer(courseId)) {
+            pending.remove(courseId);
+            droppedCounter.increment();
+            log.warn("Course rating propagation queue full, dropping update: courseId={}", courseId);
+        }
+    }
+    
+    private void flush() {
+        List<Long> courseIds = new ArrayList<>();
+        queue.drainTo(courseIds);
+        for (Long courseId : courseIds) {
+            long dirtySince = pending.remove(courseId);
+            try {
+                push(courseId);
+                attempts.remove(courseId);
+                sentCounter.increment();
+                lagTimer.record(System.nanoTime() - dirtySince, TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                failedCounter.increment();
+                scheduleRetry(courseId, dirtySince, e);
+            }
+        }
+    }
+    
+    private void push(Long courseId) {
+        CourseRatingStats stats = courseRatingStatsService.getStats(courseId).orElse(null);
+        Double avgRating = stats != null ? stats.averageRating() : 0.0;
+        Integer totalRatings = stats != null ? stats.getRatingCount().intValue() : 0;
+        
+        String url = String.format("%s/api/courses/%d/rating?averageRating=%f&totalRatings=%d",
+                courseServiceUrl, courseId, avgRating, totalRatings);
+        
+        restTemplate.put(url, null);
+        courseRatingReconciler.recordPushed(courseId,
+                stats != null ? stats.getRatingCount() : 0, stats != null ? stats.getRatingSum() : 0);
+        log.info("Course rating updated: courseId={}, avgRating={}, totalRatings={}",
+                courseId, avgRating, totalRatings);
+    }
+    
+    private void scheduleRetry(Long courseId, long dirtySince, Exception cause) {
+        int attempt = attempts.merge(courseId, 1, Integer::sum);
+        if (attempt >= maxAttempts) {
+            attempts.remove(courseId);
+            log.error("Giving up on course rating update: courseId={}, attempts={}, error={}",
+                    courseId, attempt, cause.getMessage());
+            return;
+        }
+        
+        long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << (attempt - 1));
+        log.warn("Failed to update course rating, retrying in {} ms: courseId={}, attempt={}, error={}",
+                backoffMs, courseId, attempt, cause.getMessage());
+        
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(() -> enqueue(courseId, dirtySince), backoffMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.common.dto.CourseRatingUpdate;
+import com.courseplatform.ratingservice.dto.RatingReconciliationReport;
+import com.courseplatform.ratingservice.repository.CourseRatingTotalsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Periodically recomputes every course aggregate from the ratings table in one GROUP BY, rebuilds
+// course_rating_stats rows that drifted from it and pushes only the courses whose totals differ from what
+// course-service was last sent, in large batches. Catches up on anything the incremental propagation
+// dropped or gave up on; the stats are repaired too, or the next incremental push would send the drift back.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourseRatingReconciler {
+    
+    private final CourseRatingTotalsRepository courseRatingTotalsRepository;
+    private final CourseRatingStatsService courseRatingStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${services.course-service.url}")
+    private String courseServiceUrl;
+    
+    @Value("${rating.reconciliation.push-batch-size:1000}")
+    private int pushBatchSize;
+    
+    // courseId -> totals course-service last acknowledged; empty after a restart, so the first run pushes everything
+    private final Map<Long, Pushed> pushed = new ConcurrentHashMap<>();
+    
+    private Timer durationTimer;
+    private Counter ratingsScannedCounter;
+    private Counter correctedCounter;
+    private Counter failedCounter;
+    private Counter statsRebuiltCounter;
+    
+    @PostConstruct
+    void registerMetrics() {
+        durationTimer = Timer.builder("rating.reconciliation.duration")
+                .description("Time taken by one full reconciliation of course aggregates")
+                .register(meterRegistry);
+        ratingsScannedCounter = meterRegistry.counter("rating.reconciliation.ratings.scanned");
+        correctedCounter = meterRegistry.counter("rating.reconciliation.courses.corrected");
+        failedCounter = meterRegistry.counter("rating.reconciliation.courses.failed");
+        statsRebuiltCounter = meterRegistry.counter("rating.reconciliation.stats.rebuilt");
+    }
+    
+    @Scheduled(cron = "${rating.reconciliation.cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Course rating reconciliation failed: {}", e.getMessage());
+        }
+    }
+    
+    public synchronized RatingReconciliationReport reconcile() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        
+        Map<Long, Pushed> changed = new LinkedHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        List<Long> drifted = new ArrayList<>();
+        long[] ratingsScanned = {0};
+        transactionTemplate.executeWithoutResult(status -> {
+            courseRatingTotalsRepository.scan(rs -> {
+                long courseId = rs.getLong("course_id");
+                long count = rs.getLong("rating_count");
+                long sum = rs.getLong("rating_sum");
+                seen.add(courseId);
+                ratingsScanned[0] += count;
+                if (statsDrifted(rs)) {
+                    drifted.add(courseId);
+                }
+                Pushed last = pushed.get(courseId);
+                if (last == null || last.count() != count || last.sum() != sum) {
+                    changed.put(courseId, new Pushed(count, sum, start));
+                }
+            });
+            drifted.addAll(courseRatingTotalsRepository.findStatsWithoutRatings());
+        });
+        
+        long statsRebuilt = 0;
+        for (Long courseId : drifted) {
+            try {
+                courseRatingStatsService.rebuild(courseId);
+                statsRebuilt++;
+            } catch (Exception e) {
+                log.warn("Failed to rebuild course rating stats: courseId={}, error={}", courseId, e.getMessage());
+            }
+        }
+        // Courses whose last rating was deleted no longer show up in the GROUP BY
+        pushed.forEach((courseId, last) -> {
+            if (!seen.contains(courseId) && last.count() != 0) {
+                changed.put(courseId, new Pushed(0, 0, start));
+            }
+        });
+        
+        long corrected = 0;
+        long failed = 0;
+        List<Map.Entry<Long, Pushed>> entries = new ArrayList<>(changed.entrySet());
+        for (int from = 0; from < entries.size(); from += pushBatchSize) {
+            List<Map.Entry<Long, Pushed>> batch = entries.subList(from, Math.min(from + pushBatchSize, entries.size()))
+                    .stream()
+                    .filter(entry -> !pushedSince(entry.getKey(), start))
+                    .toList();
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                push(batch);
+                batch.forEach(entry -> recordPushed(entry.getKey(), entry.getValue().count(), entry.getValue().sum()));
+                corrected += batch.size();
+            } catch (Exception e) {
+                failed += batch.size();
+                log.warn("Failed to push reconciled course ratings: size={}, error={}", batch.size(), e.getMessage());
+            }
+        }
+        
+        long durationNanos = System.nanoTime() - start;
+        durationTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        ratingsScannedCounter.increment(ratingsScanned[0]);
+        correctedCounter.increment(corrected);
+        failedCounter.increment(failed);
+        statsRebuiltCounter.increment(statsRebuilt);
+        
+        RatingReconciliationReport report = RatingReconciliationReport.builder()
+                .startedAt(startedAt)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(durationNanos))
+                .ratingsScanned(ratingsScanned[0])
+                .coursesScanned(seen.size())
+                .coursesCorrected(corrected)
+                .coursesFailed(failed)
+                .statsRebuilt(statsRebuilt)
+                .build();
+        log.info("Course ratings reconciled: durationMs={}, ratingsScanned={}, coursesScanned={}, corrected={}, failed={}, statsRebuilt={}",
+                report.getDurationMs(), report.getRatingsScanned(), report.getCoursesScanned(), corrected, failed, statsRebuilt);
+        return report;
+    }
+    
+    // Called for every aggregate course-service acknowledged, including the incremental pushes
+    public void recordPushed(Long courseId, long count, long sum) {
+        pushed.put(courseId, new Pushed(count, sum, System.nanoTime()));
+    }
+    
+    private static boolean statsDrifted(ResultSet rs) throws SQLException {
+        if (rs.getObject("stats_count") == null) {
+            return true;
+        }
+        if (rs.getLong("stats_count") != rs.getLong("rating_count") || rs.getLong("stats_sum") != rs.getLong("rating_sum")) {
+            return true;
+        }
+        for (int star = 1; star <= 5; star++) {
+            if (rs.getLong("stats_" + star) != rs.getLong("count_" + star)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // A push that landed after the scan started carries newer totals than the scan saw
+    private boolean pushedSince(Long courseId, long start) {
+        Pushed last = pushed.get(courseId);
+        return last != null && last.at() - start > 0;
+    }
+    
+    private void push(List<Map.Entry<Long, Pushed>> batch) {
+        List<CourseRatingUpdate> updates = batch.stream()
+                .map(entry -> CourseRatingUpdate.builder()
+                        .courseId(entry.getKey())
+                        .averageRating(entry.getValue().averageRating())
+                        .totalRatings((int) entry.getValue().count())
+                        .build())
+                .toList();
+        restTemplate.put(courseServiceUrl + "/api/courses/ratings", updates);
+    }
+    
+    private record Pushed(long count, long sum, long at) {
+        
+        double averageRating() {
+            return count > 0 ? (double) sum / count : 0.0;
+        }
+    }
+}
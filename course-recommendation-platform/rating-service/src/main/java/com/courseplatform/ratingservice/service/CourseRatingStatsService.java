@@ -0,0 +1,117 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.entity.CourseRatingStats;
+import com.courseplatform.ratingservice.entity.Rating;
+import com.courseplatform.ratingservice.repository.CourseRatingStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourseRatingStatsService {
+    
+    private final CourseRatingStatsRepository statsRepository;
+    
+    // Deltas must commit or roll back together with the rating write that caused them
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAdded(Long courseId, int rating) {
+        Delta delta = new Delta();
+        delta.add(rating);
+        apply(courseId, delta);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChanged(Long courseId, int oldRating, int newRating) {
+        if (oldRating == newRating) {
+            return;
+        }
+        Delta delta = new Delta();
+        delta.remove(oldRating);
+        delta.add(newRating);
+        apply(courseId, delta);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRemoved(Long courseId, int rating) {
+        Delta delta = new Delta();
+        delta.remove(rating);
+        apply(courseId, delta);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAddedAll(List<Rating> ratings) {
+        // One delta per course keeps a batch down to a single row update per course
+        Map<Long, Delta> deltas = new TreeMap<>();
+        for (Rating rating : ratings) {
+            deltas.computeIfAbsent(rating.getCourseId(), id -> new Delta()).add(rating.getRating());
+        }
+        deltas.forEach(this::apply);
+    }
+    
+    public Optional<CourseRatingStats> getStats(Long courseId) {
+        return statsRepository.findById(courseId);
+    }
+    
+    public List<CourseRatingStats> getStats(Collection<Long> courseIds) {
+        return statsRepository.findAllById(courseIds);
+    }
+    
+    // One-off fill for courses rated before the stats table existed; run by an operator, not on every startup.
+    // Per course, so rows that writes have already seeded are left alone
+    @Transactional
+    public int backfillMissing() {
+        int courses = statsRepository.insertMissingFromRatings();
+        if (courses > 0) {
+            log.info("Course rating stats backfilled from ratings table: courses={}", courses);
+        }
+        return courses;
+    }
+    
+    // Overwrites a drifted row with counts taken straight from the ratings table. The row lock comes first:
+    // a write that already applied its delta commits before the recount sees its rating, and one that has not
+    // yet applied it adds the delta on top of the recounted row afterwards
+    @Transactional
+    public void rebuild(Long courseId) {
+        statsRepository.insertFromRatingsIfAbsent(courseId);
+        statsRepository.findByIdForUpdate(courseId);
+        statsRepository.recountFromRatings(courseId);
+    }
+    
+    private void apply(Long courseId, Delta delta) {
+        // A freshly seeded row already counts this transaction's writes, so the delta would count them twice
+        if (statsRepository.insertFromRatingsIfAbsent(courseId) > 0) {
+            return;
+        }
+        statsRepository.applyDelta(courseId, delta.sum, delta.count,
+                delta.histogram[0], delta.histogram[1], delta.histogram[2],
+                delta.histogram[3], delta.histogram[4]);
+    }
+    
+    private static class Delta {
+        private long sum;
+        private long count;
+        private final long[] histogram = new long[5];
+        
+        void add(int rating) {
+            sum += rating;
+            count++;
+            histogram[rating - 1]++;
+        }
+        
+        void remove(int rating) {
+            sum -= rating;
+            count--;
+            histogram[rating - 1]--;
+        }
+    }
+}
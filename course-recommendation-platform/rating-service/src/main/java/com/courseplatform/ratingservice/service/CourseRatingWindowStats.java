@@ -0,0 +1,196 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.entity.Rating;
+import com.courseplatform.ratingservice.repository.RatingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Per-course ratings bucketed by the day of their last write, kept in memory so window reads cost O(days).
+// Each instance only sees its own writes; the periodic rebuild pulls in everything else.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CourseRatingWindowStats {
+    
+    private final RatingRepository ratingRepository;
+    
+    @Value("${rating.window.max-days:30}")
+    private int maxDays;
+    
+    private volatile Map<Long, DayRing> rings = new ConcurrentHashMap<>();
+    // Receives writes while a rebuild is querying, so they are replayed onto the new rings before the swap
+    private volatile Queue<Delta> building;
+    // Writes share it; the swap takes it exclusively so no write falls between the replay and the swap
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    
+    public record WindowTotals(long count, long sum) {
+        
+        public double averageRating() {
+            return count > 0 ? (double) sum / count : 0.0;
+        }
+    }
+    
+    public int getMaxDays() {
+        return maxDays;
+    }
+    
+    public void recordAdded(Long courseId, int rating) {
+        afterCommit(() -> apply(new Delta(courseId, LocalDate.now(), 1, rating)));
+    }
+    
+    // previousWrite is the updated_at of the row before this write, which decides the bucket it leaves
+    public void recordChanged(Long courseId, int oldRating, LocalDateTime previousWrite, int newRating) {
+        afterCommit(() -> {
+            if (previousWrite != null) {
+                apply(new Delta(courseId, previousWrite.toLocalDate(), -1, -oldRating));
+            }
+            apply(new Delta(courseId, LocalDate.now(), 1, newRating));
+        });
+    }
+    
+    public void recordRemoved(Long courseId, int rating, LocalDateTime previousWrite) {
+        if (previousWrite == null) {
+            return;
+        }
+        afterCommit(() -> apply(new Delta(courseId, previousWrite.toLocalDate(), -1, -rating)));
+    }
+    
+    public void recordAddedAll(List<Rating> ratings) {
+        afterCommit(() -> {
+            LocalDate today = LocalDate.now();
+            ratings.forEach(rating -> apply(new Delta(rating.getCourseId(), today, 1, rating.getRating())));
+        });
+    }
+    
+    public WindowTotals getTotals(Long courseId, int days) {
+        if (days < 1 || days > maxDays) {
+            throw new RuntimeException("window must be between 1d and " + maxDays + "d");
+        }
+        DayRing ring = rings.get(courseId);
+        return ring != null ? ring.sum(LocalDate.now(), days) : new WindowTotals(0, 0);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${rating.window.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${rating.window.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        LocalDate today = LocalDate.now();
+        LocalDate firstDay = today.minusDays(maxDays - 1L);
+        Map<Long, DayRing> rebuilt = new ConcurrentHashMap<>();
+        Queue<Delta> journal = new ConcurrentLinkedQueue<>();
+        building = journal;
+        try {
+            for (Object[] row : ratingRepository.sumByCourseAndDaySince(firstDay.atStartOfDay())) {
+                rebuilt.computeIfAbsent((Long) row[0], id -> new DayRing(maxDays))
+                        .add((LocalDate) row[1], ((Number) row[2]).longValue(), ((Number) row[3]).longValue());
+            }
+            swapLock.writeLock().lock();
+            try {
+                // Only a write whose commit came just before the query but whose callback ran after it started
+                // can be counted twice; everything committed during the query is in the journal only
+                journal.forEach(delta -> delta.applyTo(rebuilt, maxDays));
+                rings = rebuilt;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            building = null;
+        }
+        log.info("Course rating window stats rebuilt: courses={}, days={}, replayed={}",
+                rebuilt.size(), maxDays, journal.size());
+    }
+    
+    private void apply(Delta delta) {
+        swapLock.readLock().lock();
+        try {
+            delta.applyTo(rings, maxDays);
+            Queue<Delta> journal = building;
+            if (journal != null) {
+                journal.add(delta);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+    
+    // Only committed writes move the buckets
+    private void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+    
+    private record Delta(Long courseId, LocalDate day, long count, long sum) {
+        
+        void applyTo(Map<Long, DayRing> target, int maxDays) {
+            target.computeIfAbsent(courseId, id -> new DayRing(maxDays)).add(day, count, sum);
+        }
+    }
+    
+    // One slot per day, indexed by epoch day modulo the ring size; a slot holding an older day is stale
+    private static class DayRing {
+        private final long[] days;
+        private final long[] counts;
+        private final long[] sums;
+        
+        DayRing(int size) {
+            days = new long[size];
+            counts = new long[size];
+            sums = new long[size];
+        }
+        
+        synchronized void add(LocalDate day, long count, long sum) {
+            long epochDay = day.toEpochDay();
+            int slot = (int) Math.floorMod(epochDay, (long) days.length);
+            if (days[slot] != epochDay) {
+                if (days[slot] > epochDay || count < 0) {
+                    // Already rotated out of the window, or removing from a bucket that expired
+                    return;
+                }
+                days[slot] = epochDay;
+                counts[slot] = 0;
+                sums[slot] = 0;
+            }
+            counts[slot] += count;
+            sums[slot] += sum;
+        }
+        
+        synchronized WindowTotals sum(LocalDate today, int windowDays) {
+            long count = 0;
+            long sum = 0;
+            long last = today.toEpochDay();
+            for (long epochDay = last - windowDays + 1; epochDay <= last; epochDay++) {
+                int slot = (int) Math.floorMod(epochDay, (long) days.length);
+                if (days[slot] == epochDay) {
+                    count += counts[slot];
+                    sum += sums[slot];
+                }
+            }
+            return new WindowTotals(count, sum);
+        }
+    }
+}
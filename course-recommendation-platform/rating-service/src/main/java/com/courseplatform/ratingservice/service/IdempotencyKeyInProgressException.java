@@ -0,0 +1,8 @@
+package com.courseplatform.ratingservice.service;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+    
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
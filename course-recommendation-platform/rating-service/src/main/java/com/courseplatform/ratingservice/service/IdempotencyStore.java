@@ -0,0 +1,125 @@
+package com.courseplatform.ratingservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Remembers successful write responses per Idempotency-Key so client retries are answered from memory
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyStore {
+    
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${rating.idempotency.max-keys:100000}")
+    private long maxKeys;
+    
+    @Value("${rating.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+    
+    @Value("${rating.idempotency.in-flight-wait-ms:5000}")
+    private long inFlightWaitMs;
+    
+    // scope + key -> response; the future lets a retry that arrives mid-request wait for the first attempt
+    private Cache<String, Entry> entries;
+    
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter conflictCounter;
+    
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        hitCounter = meterRegistry.counter("rating.idempotency.requests", "result", "hit");
+        missCounter = meterRegistry.counter("rating.idempotency.requests", "result", "miss");
+        conflictCounter = meterRegistry.counter("rating.idempotency.requests", "result", "conflict");
+        Gauge.builder("rating.idempotency.keys", entries, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+    
+    // Runs the write once per key; repeats get the stored response back without running it again.
+    // Failed writes are not stored, so a retry after an error runs the write again.
+    @SuppressWarnings("unchecked")
+    public <T> ResponseEntity<T> execute(String key, String scope, Object request, Supplier<ResponseEntity<T>> write) {
+        if (key == null) {
+            return write.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        
+        // The request itself is kept and compared with equals, so two different bodies can never share a key
+        Entry created = new Entry(request, new CompletableFuture<>());
+        Entry existing = entries.asMap().putIfAbsent(scope + " " + key, created);
+        if (existing != null) {
+            if (!Objects.equals(existing.request(), request)) {
+                conflictCounter.increment();
+                throw new RuntimeException("Idempotency-Key was already used for a different request");
+            }
+            hitCounter.increment();
+            log.debug("Replaying idempotent response: scope={}, key={}", scope, key);
+            return (ResponseEntity<T>) replay(existing);
+        }
+        
+        missCounter.increment();
+        try {
+            ResponseEntity<T> response = write.get();
+            created.response().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            entries.asMap().remove(scope + " " + key, created);
+            created.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    private ResponseEntity<?> replay(Entry entry) {
+        ResponseEntity<?> stored;
+        try {
+            stored = entry.response().get(inFlightWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException("Interrupted while waiting for the request with this Idempotency-Key");
+        } catch (ExecutionException e) {
+            // The first attempt failed while this one was waiting; surface the same error
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return ResponseEntity.status(stored.getStatusCode())
+                .headers(stored.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.getBody());
+    }
+    
+    private record Entry(Object request, CompletableFuture<ResponseEntity<?>> response) {
+    }
+}
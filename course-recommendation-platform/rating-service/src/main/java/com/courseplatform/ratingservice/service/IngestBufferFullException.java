@@ -0,0 +1,8 @@
+package com.courseplatform.ratingservice.service;
+
+public class IngestBufferFullException extends RuntimeException {
+    
+    public IngestBufferFullException(String message) {
+        super(message);
+    }
+}
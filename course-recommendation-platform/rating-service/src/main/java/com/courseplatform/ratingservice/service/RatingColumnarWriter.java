@@ -0,0 +1,170 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.dto.RatingSummary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed columnar export format for ratings.
+ *
+ * <pre>
+ * header    4 bytes "RCOL", 1 byte version (1)
+ * block     4-byte row count n (&gt; 0), then one column after another:
+ *           id n*8, userId n*8, courseId n*8, rating n*1, updatedAt n*8
+ * end       4-byte row count 0
+ * footer    8-byte total rows, 8-byte watermark (-1 when there are no rows)
+ * </pre>
+ *
+ * The watermark is the highest updatedAt written, held back to the writer's watermark limit so that a
+ * rating stamped before the export but committed after it is still newer than the watermark.
+ *
+ * All integers are big-endian. Timestamps are epoch millis of the LocalDateTime read as UTC
+ * wall-clock time, -1 for null, the same convention as RatingEventCodec.
+ */
+public class RatingColumnarWriter {
+    
+    public static final byte[] MAGIC = {'R', 'C', 'O', 'L'};
+    public static final byte VERSION = 1;
+    
+    private final GZIPOutputStream gzip;
+    private final DataOutputStream out;
+    private final long[] ids;
+    private final long[] userIds;
+    private final long[] courseIds;
+    private final byte[] ratings;
+    private final long[] updatedAts;
+    private int buffered;
+    private long totalRows;
+    private final long watermarkLimit;
+    private long maxUpdatedAt = -1;
+    
+    public RatingColumnarWriter(OutputStream target, int blockRows, LocalDateTime watermarkLimit) throws IOException {
+        this.watermarkLimit = toMillis(watermarkLimit);
+        gzip = new GZIPOutputStream(target, 64 * 1024);
+        out = new DataOutputStream(new BufferedOutputStream(gzip, 64 * 1024));
+        ids = new long[blockRows];
+        userIds = new long[blockRows];
+        courseIds = new long[blockRows];
+        ratings = new byte[blockRows];
+        updatedAts = new long[blockRows];
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+    
+    public void write(long id, long userId, long courseId, int rating, LocalDateTime updatedAt) throws IOException {
+        long updatedAtMillis = toMillis(updatedAt);
+        ids[buffered] = id;
+        userIds[buffered] = userId;
+        courseIds[buffered] = courseId;
+        ratings[buffered] = (byte) rating;
+        updatedAts[buffered] = updatedAtMillis;
+        buffered++;
+        totalRows++;
+        maxUpdatedAt = Math.max(maxUpdatedAt, updatedAtMillis);
+        if (buffered == ids.length) {
+            writeBlock();
+        }
+    }
+    
+    // Writes the trailing block and footer and finishes the gzip stream without closing the target
+    public void finish() throws IOException {
+        writeBlock();
+        out.writeInt(0);
+        out.writeLong(totalRows);
+        out.writeLong(watermark());
+        out.flush();
+        gzip.finish();
+    }
+    
+    public long getTotalRows() {
+        return totalRows;
+    }
+    
+    // Pass as since to the next export; null when nothing was written
+    public LocalDateTime getWatermark() {
+        return fromMillis(watermark());
+    }
+    
+    // Reference reader for the format; loads everything, so only meant for tests and small files
+    public static List<RatingSummary> readAll(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(source)));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        byte version = in.readByte();
+        if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+            throw new IOException("Not a version " + VERSION + " rating export");
+        }
+        
+        List<RatingSummary> rows = new ArrayList<>();
+        int count;
+        while ((count = in.readInt()) > 0) {
+            long[] ids = readLongs(in, count);
+            long[] userIds = readLongs(in, count);
+            long[] courseIds = readLongs(in, count);
+            byte[] ratings = new byte[count];
+            in.readFully(ratings);
+            long[] updatedAts = readLongs(in, count);
+            for (int i = 0; i < count; i++) {
+                rows.add(new RatingSummary(ids[i], userIds[i], courseIds[i], (int) ratings[i], fromMillis(updatedAts[i])));
+            }
+        }
+        long totalRows = in.readLong();
+        if (totalRows != rows.size()) {
+            throw new IOException("Rating export footer expects " + totalRows + " rows, read " + rows.size());
+        }
+        return rows;
+    }
+    
+    private long watermark() {
+        return maxUpdatedAt >= 0 ? Math.min(maxUpdatedAt, watermarkLimit) : -1;
+    }
+    
+    private void writeBlock() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        out.writeInt(buffered);
+        writeLongs(ids);
+        writeLongs(userIds);
+        writeLongs(courseIds);
+        out.write(ratings, 0, buffered);
+        writeLongs(updatedAts);
+        buffered = 0;
+    }
+    
+    private void writeLongs(long[] column) throws IOException {
+        for (int i = 0; i < buffered; i++) {
+            out.writeLong(column[i]);
+        }
+    }
+    
+    private static long[] readLongs(DataInputStream in, int count) throws IOException {
+        long[] column = new long[count];
+        for (int i = 0; i < count; i++) {
+            column[i] = in.readLong();
+        }
+        return column;
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : -1;
+    }
+    
+    private static LocalDateTime fromMillis(long millis) {
+        return millis >= 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC) : null;
+    }
+}
@@ -0,0 +1,238 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.dto.RatingDuplicateFilterStats;
+import com.courseplatform.ratingservice.repository.RatingPairRepository;
+import com.courseplatform.ratingservice.repository.RatingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+// Bloom filter over (userId, courseId) pairs in the ratings table. "No" is definite for the writes this
+// instance has seen, so the duplicate check only reaches the database on "maybe"; the unique constraint
+// still catches pairs written elsewhere. Deleted ratings stay in the filter until the next rebuild, which
+// also resizes it for the current row count.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingDuplicateFilter {
+    
+    private final RatingRepository ratingRepository;
+    private final RatingPairRepository ratingPairRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${rating.duplicate-filter.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${rating.duplicate-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    // Headroom over the current row count so the filter stays near its target rate until the next rebuild
+    @Value("${rating.duplicate-filter.growth-factor:1.5}")
+    private double growthFactor;
+    
+    @Value("${rating.duplicate-filter.min-capacity:100000}")
+    private long minCapacity;
+    
+    @Value("${rating.duplicate-filter.max-memory-mb:256}")
+    private long maxMemoryMb;
+    
+    // Until the first build finishes every check answers "maybe"
+    private volatile Bits current;
+    // Receives writes while a rebuild is streaming the table, so none are missed by the swap
+    private volatile Bits building;
+    private volatile long lastRebuildMs;
+    private volatile long lastRebuildRows;
+    
+    private Counter negativeCounter;
+    private Counter maybeCounter;
+    private Counter falsePositiveCounter;
+    private Timer rebuildTimer;
+    
+    @PostConstruct
+    void registerMetrics() {
+        negativeCounter = meterRegistry.counter("rating.duplicate.filter.checks", "result", "negative");
+        maybeCounter = meterRegistry.counter("rating.duplicate.filter.checks", "result", "maybe");
+        falsePositiveCounter = meterRegistry.counter("rating.duplicate.filter.false.positives");
+        rebuildTimer = Timer.builder("rating.duplicate.filter.rebuild")
+                .description("Time to size and fill the duplicate-rating filter from the ratings table")
+                .register(meterRegistry);
+        Gauge.builder("rating.duplicate.filter.memory", this, filter -> filter.getStats().getMemoryBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("rating.duplicate.filter.expected.fpp", this,
+                        filter -> filter.getStats().getExpectedFalsePositiveRate())
+                .register(meterRegistry);
+    }
+    
+    // Runs the query only when the filter cannot rule the pair out
+    public boolean exists(Long userId, Long courseId, BooleanSupplier query) {
+        Bits bits = current;
+        if (bits != null && !bits.mightContain(userId, courseId)) {
+            negativeCounter.increment();
+            return false;
+        }
+        maybeCounter.increment();
+        boolean exists = query.getAsBoolean();
+        if (bits != null && !exists) {
+            falsePositiveCounter.increment();
+        }
+        return exists;
+    }
+    
+    // Call as soon as the row is written, before commit: an early add only costs a query, a late one
+    // would let a concurrent duplicate skip the check and hit the unique constraint instead
+    public void add(Long userId, Long courseId) {
+        Bits bits = current;
+        if (bits != null) {
+            bits.add(userId, courseId);
+        }
+        Bits next = building;
+        if (next != null) {
+            next.add(userId, courseId);
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${rating.duplicate-filter.rebuild-interval-ms:86400000}",
+            fixedDelayString = "${rating.duplicate-filter.rebuild-interval-ms:86400000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long rows = ratingRepository.count();
+        Bits next = Bits.create(Math.max(minCapacity, (long) (rows * growthFactor)), falsePositiveRate,
+                maxMemoryMb * 1024 * 1024 * 8);
+        building = next;
+        try {
+            transactionTemplate.executeWithoutResult(status -> ratingPairRepository.scan(
+                    rs -> next.add(rs.getLong("user_id"), rs.getLong("course_id"))));
+            current = next;
+        } finally {
+            building = null;
+        }
+        
+        long durationNanos = System.nanoTime() - start;
+        rebuildTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        lastRebuildMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        lastRebuildRows = rows;
+        RatingDuplicateFilterStats stats = getStats();
+        log.info("Duplicate rating filter rebuilt: rows={}, capacity={}, memoryBytes={}, hashFunctions={}, " +
+                        "expectedFpp={}, durationMs={}", rows, stats.getCapacity(), stats.getMemoryBytes(),
+                stats.getHashFunctions(), String.format("%.5f", stats.getExpectedFalsePositiveRate()), lastRebuildMs);
+    }
+    
+    public RatingDuplicateFilterStats getStats() {
+        Bits bits = current;
+        double negatives = negativeCounter.count();
+        double falsePositives = falsePositiveCounter.count();
+        RatingDuplicateFilterStats.RatingDuplicateFilterStatsBuilder stats = RatingDuplicateFilterStats.builder()
+                .ready(bits != null)
+                .observedFalsePositiveRate(negatives + falsePositives > 0 ? falsePositives / (negatives + falsePositives) : 0.0)
+                .lastRebuildMs(lastRebuildMs)
+                .lastRebuildRows(lastRebuildRows);
+        if (bits == null) {
+            return stats.expectedFalsePositiveRate(1.0).build();
+        }
+        return stats
+                .capacity(bits.capacity)
+                .insertions(bits.insertions.get())
+                .bits(bits.size)
+                .hashFunctions(bits.hashFunctions)
+                .memoryBytes(bits.words.length() * 8L)
+                .expectedFalsePositiveRate(bits.expectedFalsePositiveRate())
+                .build();
+    }
+    
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashFunctions;
+        private final long capacity;
+        private final AtomicLong setBits = new AtomicLong();
+        private final AtomicLong insertions = new AtomicLong();
+        
+        private Bits(long size, int hashFunctions, long capacity) {
+            this.words = new AtomicLongArray((int) ((size + 63) / 64));
+            this.size = size;
+            this.hashFunctions = hashFunctions;
+            this.capacity = capacity;
+        }
+        
+        // Standard sizing: m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hash functions, capped at maxBits
+        static Bits create(long capacity, double falsePositiveRate, long maxBits) {
+            long optimal = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            long size = Math.max(64, Math.min(optimal, Math.min(maxBits, 64L * Integer.MAX_VALUE)));
+            int hashFunctions = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+            return new Bits(size, hashFunctions, capacity);
+        }
+        
+        void add(long userId, long courseId) {
+            long hash1 = mix(userId * 0x9E3779B97F4A7C15L + courseId);
+            long hash2 = mix(hash1 ^ courseId) | 1;
+            boolean changed = false;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, size);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long old;
+                do {
+                    old = words.get(word);
+                    if ((old & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, old, old | mask));
+                if ((old & mask) == 0) {
+                    setBits.incrementAndGet();
+                    changed = true;
+                }
+            }
+            if (changed) {
+                insertions.incrementAndGet();
+            }
+        }
+        
+        boolean mightContain(long userId, long courseId) {
+            long hash1 = mix(userId * 0x9E3779B97F4A7C15L + courseId);
+            long hash2 = mix(hash1 ^ courseId) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        // The chance all k probed bits are already set is the fill ratio to the power of k
+        double expectedFalsePositiveRate() {
+            return Math.pow((double) setBits.get() / size, hashFunctions);
+        }
+        
+        // MurmurHash3 finalizer
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb93e10ab1a93L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.dto.RatingExportSummary;
+import com.courseplatform.ratingservice.repository.RatingExportRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingExportService {
+    
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final RatingExportRepository ratingExportRepository;
+    
+    @Value("${rating.export.block-rows:65536}")
+    private int blockRows;
+    
+    @Value("${rating.export.dir:${java.io.tmpdir}/rating-export}")
+    private String exportDir;
+    
+    // updated_at is stamped before commit, so a rating can become visible with a timestamp older than rows an
+    // export already saw. The watermark stays this far behind the export start to catch those on the next run;
+    // it has to exceed the longest rating write transaction.
+    @Value("${rating.export.watermark-lag-seconds:60}")
+    private long watermarkLagSeconds;
+    
+    // Rows go from the cursor straight into column blocks, so memory stays at one block whatever the table size
+    @Transactional(readOnly = true)
+    public RatingExportSummary export(LocalDateTime since, OutputStream out) {
+        try {
+            LocalDateTime watermarkLimit = LocalDateTime.now().minusSeconds(watermarkLagSeconds);
+            RatingColumnarWriter writer = new RatingColumnarWriter(out, blockRows, watermarkLimit);
+            ratingExportRepository.scan(since, rs -> {
+                Timestamp updatedAt = rs.getTimestamp("updated_at");
+                try {
+                    writer.write(
+                            rs.getLong("id"),
+                            rs.getLong("user_id"),
+                            rs.getLong("course_id"),
+                            rs.getInt("rating"),
+                            updatedAt != null ? updatedAt.toLocalDateTime() : null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+            log.info("Ratings exported: rows={}, since={}", writer.getTotalRows(), since);
+            
+            return RatingExportSummary.builder()
+                    .rows(writer.getTotalRows())
+                    .watermark(writer.getWatermark())
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public RatingExportSummary exportToFile(LocalDateTime since) {
+        Path file = Paths.get(exportDir, "ratings-" + LocalDateTime.now().format(FILE_TIMESTAMP)
+                + (since != null ? "-delta" : "") + ".rcol.gz");
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                RatingExportSummary summary = export(since, out);
+                summary.setFile(file.toAbsolutePath().toString());
+                return summary;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.dto.BatchRatingItemResult;
+import com.courseplatform.ratingservice.dto.RatingIngestStatus;
+import com.courseplatform.ratingservice.entity.Rating;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatingIngestBuffer {
+    
+    public enum Durability {
+        // Acknowledge once the rating is buffered; a crash before the next flush loses it
+        ACCEPTED,
+        // Hold the request until the group commit containing the rating has finished
+        COMMITTED
+    }
+    
+    private final RatingService ratingService;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${rating.ingest.mode:sync}")
+    private String mode;
+    
+    @Value("${rating.ingest.durability:accepted}")
+    private Durability durability;
+    
+    @Value("${rating.ingest.buffer-capacity:20000}")
+    private int bufferCapacity;
+    
+    @Value("${rating.ingest.max-flush-size:1000}")
+    private int maxFlushSize;
+    
+    @Value("${rating.ingest.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    
+    @Value("${rating.ingest.commit-timeout-ms:5000}")
+    private long commitTimeoutMs;
+    
+    @Value("${rating.ingest.status-ttl-seconds:3600}")
+    private long statusTtlSeconds;
+    
+    private BlockingQueue<PendingRating> buffer;
+    private Cache<String, RatingIngestStatus> statuses;
+    private ExecutorService writer;
+    private volatile boolean running;
+    
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Counter committedCounter;
+    private Counter failedCounter;
+    private DistributionSummary flushSize;
+    private Timer flushTimer;
+    
+    @PostConstruct
+    void start() {
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        statuses = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(statusTtlSeconds))
+                .build();
+        acceptedCounter = meterRegistry.counter("rating.ingest.accepted");
+        rejectedCounter = meterRegistry.counter("rating.ingest.rejected");
+        committedCounter = meterRegistry.counter("rating.ingest.committed");
+        failedCounter = meterRegistry.counter("rating.ingest.failed");
+        flushSize = DistributionSummary.builder("rating.ingest.flush.size")
+                .description("Ratings written per group commit")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("rating.ingest.flush.duration")
+                .description("Time spent writing one group commit")
+                .register(meterRegistry);
+        Gauge.builder("rating.ingest.buffer.depth", buffer, BlockingQueue::size)
+                .register(meterRegistry);
+        
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rating-ingest-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(this::writeLoop);
+        log.info("Rating ingestion running in async mode: durability={}, bufferCapacity={}, maxFlushSize={}",
+                durability, bufferCapacity, maxFlushSize);
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.shutdown();
+        if (!writer.awaitTermination(commitTimeoutMs, TimeUnit.MILLISECONDS)) {
+            log.warn("Rating ingest writer did not stop in time: buffered={}", buffer.size());
+        }
+    }
+    
+    public boolean isEnabled() {
+        return "async".equalsIgnoreCase(mode);
+    }
+    
+    public Durability getDurability() {
+        return durability;
+    }
+    
+    public RatingIngestStatus submit(Long userId, Long courseId, Integer rating, String comment) {
+        if (userId == null || courseId == null || rating == null) {
+            throw new RuntimeException("userId, courseId and rating are required");
+        }
+        if (rating < 1 || rating > 5) {
+            throw new RuntimeException("Rating must be between 1 and 5");
+        }
+        
+        RatingIngestStatus status = RatingIngestStatus.builder()
+                .trackingId(UUID.randomUUID().toString())
+                .state(RatingIngestStatus.State.PENDING)
+                .userId(userId)
+                .courseId(courseId)
+                .build();
+        PendingRating pending = new PendingRating(status, Rating.builder()
+                .userId(userId)
+                .courseId(courseId)
+                .rating(rating)
+                .comment(comment)
+                .build(), new CompletableFuture<>());
+        
+        statuses.put(status.getTrackingId(), status);
+        if (!buffer.offer(pending)) {
+            statuses.invalidate(status.getTrackingId());
+            rejectedCounter.increment();
+            throw new IngestBufferFullException("Rating ingest buffer is full, please retry later");
+        }
+        acceptedCounter.increment();
+        
+        if (durability == Durability.ACCEPTED) {
+            return status;
+        }
+        try {
+            return pending.result().get(commitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Still queued or in flight; the caller can poll the tracking id
+            return status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return status;
+        } catch (Exception e) {
+            throw new RuntimeException("Rating ingest failed: " + e.getMessage(), e);
+        }
+    }
+    
+    public RatingIngestStatus getStatus(String trackingId) {
+        RatingIngestStatus status = statuses.getIfPresent(trackingId);
+        if (status == null) {
+            throw new RuntimeException("Ingest tracking id not found");
+        }
+        return status;
+    }
+    
+    private void writeLoop() {
+        List<PendingRating> batch = new ArrayList<>(maxFlushSize);
+        // Keep flushing after shutdown is requested until the buffer is empty
+        while (running || !buffer.isEmpty()) {
+            try {
+                PendingRating first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Whatever queued up while the previous flush was running joins this commit
+                batch.add(first);
+                buffer.drainTo(batch, maxFlushSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Rating ingest writer error: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void flush(List<PendingRating> batch) {
+        List<Rating> ratings = batch.stream().map(PendingRating::rating).toList();
+        long start = System.nanoTime();
+        List<BatchRatingItemResult> results;
+        try {
+            results = ratingService.createRatings(ratings);
+        } catch (Exception e) {
+            log.error("Rating group commit failed: size={}, error={}", batch.size(), e.getMessage());
+            batch.forEach(pending -> complete(pending, null, "Group commit failed: " + e.getMessage()));
+            return;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            flushSize.record(batch.size());
+        }
+        
+        for (int i = 0; i < batch.size(); i++) {
+            BatchRatingItemResult result = results.get(i);
+            complete(batch.get(i), result.getRatingId(), result.getError());
+        }
+        log.debug("Rating group commit written: size={}", batch.size());
+    }
+    
+    private void complete(PendingRating pending, Long ratingId, String error) {
+        RatingIngestStatus status = pending.status().toBuilder()
+                .state(error == null ? RatingIngestStatus.State.COMMITTED : RatingIngestStatus.State.FAILED)
+                .ratingId(ratingId)
+                .error(error)
+                .build();
+        (error == null ? committedCounter : failedCounter).increment();
+        statuses.put(status.getTrackingId(), status);
+        pending.result().complete(status);
+    }
+    
+    private record PendingRating(RatingIngestStatus status, Rating rating,
+                                 CompletableFuture<RatingIngestStatus> result) {
+    }
+}
@@ -1,18 +1,40 @@
 package com.courseplatform.ratingservice.service;
 
 import com.courseplatform.common.dto.RatingEvent;
+import com.courseplatform.ratingservice.dto.BatchRatingItemResult;
+import com.courseplatform.ratingservice.dto.CourseRatingAggregate;
+import com.courseplatform.ratingservice.dto.RatingPage;
+import com.courseplatform.ratingservice.dto.RatingSummary;
+import com.courseplatform.ratingservice.dto.RatingUpsertResult;
+import com.courseplatform.ratingservice.entity.CourseRatingStats;
+import com.courseplatform.ratingservice.entity.OutboxEvent;
 import com.courseplatform.ratingservice.entity.Rating;
-import com.courseplatform.ratingservice.kafka.KafkaProducerService;
+import com.courseplatform.ratingservice.repository.OutboxEventRepository;
+import com.courseplatform.ratingservice.repository.RatingBatchRepository;
 import com.courseplatform.ratingservice.repository.RatingRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -20,16 +42,37 @@ import java.util.List;
 public class RatingService {
     
     private final RatingRepository ratingRepository;
-    private final KafkaProducerService kafkaProducerService;
-    private final RestTemplate restTemplate;
+    private final RatingBatchRepository ratingBatchRepository;
+    private final CourseRatingStatsService courseRatingStatsService;
+    private final CourseRatingWindowStats courseRatingWindowStats;
+    private final OutboxEventRepository outboxEventRepository;
+    private final CourseRatingPropagator courseRatingPropagator;
+    private final UserRatingCache userRatingCache;
+    private final RatingDuplicateFilter ratingDuplicateFilter;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
     
-    @Value("${services.course-service.url}")
-    private String courseServiceUrl;
+    @Value("${rating.batch.max-size:5000}")
+    private int maxBatchSize;
+    
+    @Value("${rating.stats.batch-max-size:500}")
+    private int maxStatsBatchSize;
+    
+    @Value("${rating.page.default-size:100}")
+    private int defaultPageSize;
+    
+    @Value("${rating.page.max-size:1000}")
+    private int maxPageSize;
+    
+    // Keeps every rating event well inside a Kafka request, so no outbox row can be unpublishable
+    @Value("${rating.comment.max-length:10000}")
+    private int maxCommentLength;
     
     @Transactional
     public RatingEvent createRating(Long userId, Long courseId, Integer rating, String comment) {
-        // Check if rating already exists
-        if (ratingRepository.existsByUserIdAndCourseId(userId, courseId)) {
+        // Check if rating already exists; the filter answers most first-time ratings without a query
+        if (ratingDuplicateFilter.exists(userId, courseId,
+                () -> ratingRepository.existsByUserIdAndCourseId(userId, courseId))) {
             throw new RuntimeException("User has already rated this course");
         }
         
@@ -37,6 +80,7 @@ public class RatingService {
         if (rating < 1 || rating > 5) {
             throw new RuntimeException("Rating must be between 1 and 5");
         }
+        validateComment(comment);
         
         Rating ratingEntity = Rating.builder()
                 .userId(userId)
@@ -45,10 +89,20 @@ public class RatingService {
                 .comment(comment)
                 .build();
         
-        Rating savedRating = ratingRepository.save(ratingEntity);
+        Rating savedRating;
+        try {
+            savedRating = ratingRepository.save(ratingEntity);
+        } catch (DataIntegrityViolationException e) {
+            // Written by another instance, or by a request that raced this one past the filter
+            throw new RuntimeException("User has already rated this course");
+        }
+        ratingDuplicateFilter.add(userId, courseId);
+        courseRatingStatsService.recordAdded(courseId, rating);
+        courseRatingWindowStats.recordAdded(courseId, rating);
+        userRatingCache.invalidate(userId);
         log.info("Rating created: userId={}, courseId={}, rating={}", userId, courseId, rating);
         
-        // Create and send rating event to Kafka
+        // Record the rating event in the outbox; the relay publishes it to Kafka after commit
         RatingEvent event = RatingEvent.builder()
                 .id(savedRating.getId())
                 .userId(userId)
@@ -58,10 +112,10 @@ public class RatingService {
                 .timestamp(LocalDateTime.now())
                 .build();
         
-        kafkaProducerService.sendRatingEvent(event);
+        outboxEventRepository.save(OutboxEvent.from(event));
         
         // Update course average rating
-        updateCourseRating(courseId);
+        courseRatingPropagator.markDirty(courseId);
         
         return event;
     }
@@ -75,14 +129,20 @@ public class RatingService {
         if (rating < 1 || rating > 5) {
             throw new RuntimeException("Rating must be between 1 and 5");
         }
+        validateComment(comment);
         
+        int previousRating = ratingEntity.getRating();
+        LocalDateTime previousUpdatedAt = ratingEntity.getUpdatedAt();
         ratingEntity.setRating(rating);
         ratingEntity.setComment(comment);
         
         Rating updatedRating = ratingRepository.save(ratingEntity);
+        courseRatingStatsService.recordChanged(courseId, previousRating, rating);
+        courseRatingWindowStats.recordChanged(courseId, previousRating, previousUpdatedAt, rating);
+        userRatingCache.invalidate(userId);
         log.info("Rating updated: userId={}, courseId={}, rating={}", userId, courseId, rating);
         
-        // Create and send rating event to Kafka
+        // Record the rating event in the outbox; the relay publishes it to Kafka after commit
         RatingEvent event = RatingEvent.builder()
                 .id(updatedRating.getId())
                 .userId(userId)
@@ -92,23 +152,199 @@ public class RatingService {
                 .timestamp(LocalDateTime.now())
                 .build();
         
-        kafkaProducerService.sendRatingEvent(event);
+        outboxEventRepository.save(OutboxEvent.from(event));
         
         // Update course average rating
-        updateCourseRating(courseId);
+        courseRatingPropagator.markDirty(courseId);
         
         return event;
     }
     
-    public List<Rating> getRatingsByUserId(Long userId) {
-        return ratingRepository.findByUserId(userId);
+    @Transactional
+    public RatingUpsertResult upsertRating(Long userId, Long courseId, Integer rating, String comment) {
+        // Validate rating value
+        if (rating == null || rating < 1 || rating > 5) {
+            throw new RuntimeException("Rating must be between 1 and 5");
+        }
+        validateComment(comment);
+        
+        RatingUpsertResult result = ratingBatchRepository.upsert(userId, courseId, rating, comment);
+        if (!result.isChanged()) {
+            log.debug("Rating unchanged: userId={}, courseId={}", userId, courseId);
+            return result;
+        }
+        
+        if (result.isCreated()) {
+            ratingDuplicateFilter.add(userId, courseId);
+            courseRatingStatsService.recordAdded(courseId, rating);
+            courseRatingWindowStats.recordAdded(courseId, rating);
+        } else if (result.getPreviousRating() != null) {
+            courseRatingStatsService.recordChanged(courseId, result.getPreviousRating(), rating);
+            courseRatingWindowStats.recordChanged(courseId, result.getPreviousRating(),
+                    result.getPreviousUpdatedAt(), rating);
+        } else {
+            // The row was inserted by a concurrent request after our snapshot, so the old value is unknown
+            throw new RuntimeException("Concurrent rating update, please retry");
+        }
+        userRatingCache.invalidate(userId);
+        log.info("Rating upserted: userId={}, courseId={}, rating={}, created={}",
+                userId, courseId, rating, result.isCreated());
+        
+        RatingEvent event = RatingEvent.builder()
+                .id(result.getRatingId())
+                .userId(userId)
+                .courseId(courseId)
+                .rating(rating)
+                .comment(comment)
+                .timestamp(LocalDateTime.now())
+                .build();
+        outboxEventRepository.save(OutboxEvent.from(event));
+        
+        // A comment-only edit leaves the course aggregate untouched
+        if (!rating.equals(result.getPreviousRating())) {
+            courseRatingPropagator.markDirty(courseId);
+        }
+        
+        return result;
+    }
+    
+    @Transactional
+    public List<BatchRatingItemResult> createRatings(List<Rating> ratings) {
+        if (ratings.size() > maxBatchSize) {
+            throw new RuntimeException("Batch size exceeds limit of " + maxBatchSize);
+        }
+        
+        BatchRatingItemResult[] results = new BatchRatingItemResult[ratings.size()];
+        Set<String> existingPairs = findExistingPairs(ratings);
+        Set<String> batchPairs = new HashSet<>();
+        List<Rating> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        
+        // Validate every item up front so one bad row only fails itself
+        for (int i = 0; i < ratings.size(); i++) {
+            Rating rating = ratings.get(i);
+            String error = validateBatchItem(rating, existingPairs, batchPairs);
+            if (error != null) {
+                results[i] = batchResult(i, rating, null, error);
+            } else {
+                accepted.add(rating);
+                acceptedIndexes.add(i);
+            }
+        }
+        
+        ratingBatchRepository.insertAll(accepted);
+        accepted.forEach(rating -> ratingDuplicateFilter.add(rating.getUserId(), rating.getCourseId()));
+        courseRatingStatsService.recordAddedAll(accepted);
+        courseRatingWindowStats.recordAddedAll(accepted);
+        userRatingCache.invalidateAll(accepted.stream().map(Rating::getUserId).distinct().toList());
+        log.info("Rating batch created: requested={}, created={}", ratings.size(), accepted.size());
+        
+        List<RatingEvent> events = new ArrayList<>(accepted.size());
+        Set<Long> affectedCourseIds = new LinkedHashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < accepted.size(); i++) {
+            Rating saved = accepted.get(i);
+            results[acceptedIndexes.get(i)] = batchResult(acceptedIndexes.get(i), saved, saved.getId(), null);
+            affectedCourseIds.add(saved.getCourseId());
+            events.add(RatingEvent.builder()
+                    .id(saved.getId())
+                    .userId(saved.getUserId())
+                    .courseId(saved.getCourseId())
+                    .rating(saved.getRating())
+                    .comment(saved.getComment())
+                    .timestamp(now)
+                    .build());
+        }
+        
+        ratingBatchRepository.insertOutboxEvents(events);
+        
+        // Propagate each touched course once instead of once per rating
+        affectedCourseIds.forEach(courseRatingPropagator::markDirty);
+        
+        return List.of(results);
+    }
+    
+    public RatingPage<Rating> getRatingsPageByUserId(Long userId, Long afterId, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        long after = afterId != null ? afterId : 0L;
+        List<Rating> cached = userRatingCache.getRatings(userId).orElse(null);
+        if (cached != null) {
+            return toPage(pageFromCache(cached, after, pageSize), pageSize, Rating::getId);
+        }
+        return toPage(ratingRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                userId, after, Limit.of(pageSize + 1)), pageSize, Rating::getId);
+    }
+    
+    public RatingPage<Rating> getRatingsPageByCourseId(Long courseId, Long afterId, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        return toPage(ratingRepository.findByCourseIdAndIdGreaterThanOrderByIdAsc(
+                courseId, afterId != null ? afterId : 0L, Limit.of(pageSize + 1)), pageSize, Rating::getId);
+    }
+    
+    public RatingPage<RatingSummary> getRatingSummariesByUserId(Long userId, Long afterId, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        long after = afterId != null ? afterId : 0L;
+        List<Rating> cached = userRatingCache.getRatings(userId).orElse(null);
+        if (cached != null) {
+            List<RatingSummary> summaries = pageFromCache(cached, after, pageSize).stream()
+                    .map(rating -> new RatingSummary(rating.getId(), rating.getUserId(), rating.getCourseId(),
+                            rating.getRating(), rating.getUpdatedAt()))
+                    .toList();
+            return toPage(summaries, pageSize, RatingSummary::id);
+        }
+        return toPage(ratingRepository.findSummariesByUserId(
+                userId, after, Limit.of(pageSize + 1)), pageSize, RatingSummary::id);
+    }
+    
+    public RatingPage<RatingSummary> getRatingSummariesByCourseId(Long courseId, Long afterId, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        return toPage(ratingRepository.findSummariesByCourseId(
+                courseId, afterId != null ? afterId : 0L, Limit.of(pageSize + 1)), pageSize, RatingSummary::id);
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamRatingsByUserId(Long userId, OutputStream out) {
+        try (Stream<Rating> ratings = ratingRepository.streamByUserId(userId)) {
+            writeNdjson(ratings, out);
+        }
     }
     
-    public List<Rating> getRatingsByCourseId(Long courseId) {
-        return ratingRepository.findByCourseId(courseId);
+    @Transactional(readOnly = true)
+    public void streamRatingsByCourseId(Long courseId, OutputStream out) {
+        try (Stream<Rating> ratings = ratingRepository.streamByCourseId(courseId)) {
+            writeNdjson(ratings, out);
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamRatingSummariesByUserId(Long userId, OutputStream out) {
+        try (Stream<RatingSummary> ratings = ratingRepository.streamSummariesByUserId(userId)) {
+            writeNdjson(ratings, out);
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public void streamRatingSummariesByCourseId(Long courseId, OutputStream out) {
+        try (Stream<RatingSummary> ratings = ratingRepository.streamSummariesByCourseId(courseId)) {
+            writeNdjson(ratings, out);
+        }
+    }
+    
+    public String getRatingComment(Long userId, Long courseId) {
+        if (!ratingRepository.existsByUserIdAndCourseId(userId, courseId)) {
+            throw new RuntimeException("Rating not found");
+        }
+        return ratingRepository.findCommentByUserIdAndCourseId(userId, courseId).orElse(null);
     }
     
     public Rating getRatingByUserAndCourse(Long userId, Long courseId) {
+        List<Rating> cached = userRatingCache.getRatings(userId).orElse(null);
+        if (cached != null) {
+            return cached.stream()
+                    .filter(rating -> rating.getCourseId().equals(courseId))
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Rating not found"));
+        }
         return ratingRepository.findByUserIdAndCourseId(userId, courseId)
                 .orElseThrow(() -> new RuntimeException("Rating not found"));
     }
@@ -119,35 +355,150 @@ public class RatingService {
                 .orElseThrow(() -> new RuntimeException("Rating not found"));
         
         ratingRepository.delete(rating);
+        courseRatingStatsService.recordRemoved(courseId, rating.getRating());
+        courseRatingWindowStats.recordRemoved(courseId, rating.getRating(), rating.getUpdatedAt());
+        userRatingCache.invalidate(userId);
         log.info("Rating deleted: userId={}, courseId={}", userId, courseId);
         
         // Update course average rating
-        updateCourseRating(courseId);
+        courseRatingPropagator.markDirty(courseId);
     }
     
     public Double getAverageRating(Long courseId) {
-        Double avg = ratingRepository.getAverageRatingByCourseId(courseId);
-        return avg != null ? avg : 0.0;
+        return courseRatingStatsService.getStats(courseId)
+                .map(CourseRatingStats::averageRating)
+                .orElse(0.0);
     }
     
     public Integer getTotalRatings(Long courseId) {
-        Integer total = ratingRepository.getTotalRatingsByCourseId(courseId);
-        return total != null ? total : 0;
+        return courseRatingStatsService.getStats(courseId)
+                .map(stats -> stats.getRatingCount().intValue())
+                .orElse(0);
     }
     
-    private void updateCourseRating(Long courseId) {
-        try {
-            Double avgRating = getAverageRating(courseId);
-            Integer totalRatings = getTotalRatings(courseId);
-            
-            String url = String.format("%s/api/courses/%d/rating?averageRating=%f&totalRatings=%d",
-                    courseServiceUrl, courseId, avgRating, totalRatings);
-            
-            restTemplate.put(url, null);
-            log.info("Course rating updated: courseId={}, avgRating={}, totalRatings={}", 
-                    courseId, avgRating, totalRatings);
-        } catch (Exception e) {
-            log.error("Failed to update course rating: {}", e.getMessage());
+    // One primary-key lookup over the precomputed aggregates; courses without ratings come back as zeros
+    public Map<Long, CourseRatingAggregate> getCourseRatingAggregates(List<Long> courseIds) {
+        if (courseIds.size() > maxStatsBatchSize) {
+            throw new RuntimeException("Batch size exceeds limit of " + maxStatsBatchSize);
+        }
+        
+        Map<Long, CourseRatingAggregate> aggregates = new LinkedHashMap<>();
+        Set<Long> distinctIds = new LinkedHashSet<>(courseIds);
+        distinctIds.remove(null);
+        distinctIds.forEach(courseId -> aggregates.put(courseId, new CourseRatingAggregate(0.0, 0)));
+        if (distinctIds.isEmpty()) {
+            return aggregates;
+        }
+        for (CourseRatingStats stats : courseRatingStatsService.getStats(distinctIds)) {
+            aggregates.put(stats.getCourseId(),
+                    new CourseRatingAggregate(stats.averageRating(), stats.getRatingCount()));
+        }
+        return aggregates;
+    }
+    
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new RuntimeException("limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+    
+    // Cached lists are ordered by id, so a page is the rows after the cursor plus one look-ahead row
+    private List<Rating> pageFromCache(List<Rating> ratings, long afterId, int pageSize) {
+        return ratings.stream()
+                .filter(rating -> rating.getId() > afterId)
+                .limit(pageSize + 1L)
+                .toList();
+    }
+    
+    // Queries fetch one row past the page so the last page can be detected without a COUNT
+    private <T> RatingPage<T> toPage(List<T> rows, int pageSize, Function<T, Long> idOf) {
+        if (rows.size() <= pageSize) {
+            return RatingPage.<T>builder().items(rows).build();
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return RatingPage.<T>builder()
+                .items(items)
+                .nextCursor(idOf.apply(items.get(pageSize - 1)))
+                .build();
+    }
+    
+    private void writeNdjson(Stream<?> rows, OutputStream out) {
+        rows.forEach(row -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // Keep the persistence context from growing with every streamed row
+            if (row instanceof Rating) {
+                entityManager.detach(row);
+            }
+        });
+    }
+    
+    private Set<String> findExistingPairs(List<Rating> ratings) {
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> courseIds = new HashSet<>();
+        for (Rating rating : ratings) {
+            if (rating.getUserId() != null && rating.getCourseId() != null) {
+                userIds.add(rating.getUserId());
+                courseIds.add(rating.getCourseId());
+            }
+        }
+        
+        Set<String> pairs = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return pairs;
+        }
+        for (Object[] row : ratingRepository.findUserCoursePairs(userIds, courseIds)) {
+            pairs.add(row[0] + "-" + row[1]);
+        }
+        return pairs;
+    }
+    
+    private String validateBatchItem(Rating rating, Set<String> existingPairs, Set<String> batchPairs) {
+        if (rating.getUserId() == null || rating.getCourseId() == null || rating.getRating() == null) {
+            return "userId, courseId and rating are required";
         }
+        if (rating.getRating() < 1 || rating.getRating() > 5) {
+            return "Rating must be between 1 and 5";
+        }
+        if (rating.getComment() != null && rating.getComment().length() > maxCommentLength) {
+            return commentTooLong();
+        }
+        String pair = rating.getUserId() + "-" + rating.getCourseId();
+        if (existingPairs.contains(pair)) {
+            return "User has already rated this course";
+        }
+        if (!batchPairs.add(pair)) {
+            return "Duplicate rating in batch";
+        }
+        return null;
+    }
+    
+    private void validateComment(String comment) {
+        if (comment != null && comment.length() > maxCommentLength) {
+            throw new RuntimeException(commentTooLong());
+        }
+    }
+    
+    private String commentTooLong() {
+        return "Comment must be at most " + maxCommentLength + " characters";
+    }
+    
+    private BatchRatingItemResult batchResult(int index, Rating rating, Long ratingId, String error) {
+        return BatchRatingItemResult.builder()
+                .index(index)
+                .userId(rating.getUserId())
+                .courseId(rating.getCourseId())
+                .ratingId(ratingId)
+                .success(error == null)
+                .error(error)
+                .build();
     }
 }
@@ -0,0 +1,101 @@
+package com.courseplatform.ratingservice.service;
+
+import com.courseplatform.ratingservice.entity.Rating;
+import com.courseplatform.ratingservice.repository.RatingRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserRatingCache {
+    
+    private final RatingRepository ratingRepository;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${rating.cache.max-users:100000}")
+    private long maxUsers;
+    
+    @Value("${rating.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    // Users with more ratings than this are always read from the database
+    @Value("${rating.cache.max-ratings-per-user:500}")
+    private int maxRatingsPerUser;
+    
+    // Cached for users over maxRatingsPerUser, so they skip the capped load until a write or the TTL evicts it
+    private static final List<Rating> TOO_MANY = Collections.unmodifiableList(new ArrayList<>());
+    
+    // userId -> all of the user's ratings ordered by id, or TOO_MANY
+    private Cache<Long, List<Rating>> cache;
+    
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userRatings");
+    }
+    
+    // Empty when the user has too many ratings to cache; callers then query the database directly
+    public Optional<List<Rating>> getRatings(Long userId) {
+        List<Rating> ratings = cache.get(userId, this::load);
+        return ratings != TOO_MANY ? Optional.of(ratings) : Optional.empty();
+    }
+    
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+        // Evict again once the write is visible, so a read racing the commit can't re-cache stale rows
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+    
+    public void invalidateAll(Collection<Long> userIds) {
+        userIds.forEach(this::invalidate);
+    }
+    
+    private List<Rating> load(Long userId) {
+        List<Rating> ratings = ratingRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                userId, 0L, Limit.of(maxRatingsPerUser + 1));
+        if (ratings.size() > maxRatingsPerUser) {
+            return TOO_MANY;
+        }
+        // Detached copies: cached rows are shared across requests and must not be tied to one persistence context
+        return ratings.stream()
+                .map(rating -> Rating.builder()
+                        .id(rating.getId())
+                        .userId(rating.getUserId())
+                        .courseId(rating.getCourseId())
+                        .rating(rating.getRating())
+                        .comment(rating.getComment())
+                        .createdAt(rating.getCreatedAt())
+                        .updatedAt(rating.getUpdatedAt())
+                        .build())
+                .toList();
+    }
+}
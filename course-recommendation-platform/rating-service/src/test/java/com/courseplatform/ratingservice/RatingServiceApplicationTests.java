@@ -1,26 +1,177 @@
 package com.courseplatform.ratingservice;
 
+import com.courseplatform.common.dto.CourseRatingUpdate;
+import com.courseplatform.common.dto.RatingEvent;
+import com.courseplatform.common.kafka.RatingEventCodec;
+import com.courseplatform.common.kafka.RatingEventDeserializer;
+import com.courseplatform.common.kafka.RatingEventSerializer;
+import com.courseplatform.ratingservice.dto.BatchRatingItemResult;
+import com.courseplatform.ratingservice.dto.CourseRatingAggregate;
+import com.courseplatform.ratingservice.dto.RatingDuplicateFilterStats;
+import com.courseplatform.ratingservice.dto.RatingExportSummary;
+import com.courseplatform.ratingservice.dto.RatingIngestStatus;
+import com.courseplatform.ratingservice.dto.RatingPage;
+import com.courseplatform.ratingservice.dto.RatingReconciliationReport;
+import com.courseplatform.ratingservice.dto.RatingSummary;
+import com.courseplatform.ratingservice.dto.RatingUpsertResult;
+import com.courseplatform.ratingservice.entity.CourseRatingStats;
+import com.courseplatform.ratingservice.entity.OutboxEvent;
 import com.courseplatform.ratingservice.entity.Rating;
+import com.courseplatform.ratingservice.kafka.KafkaProducerService;
+import com.courseplatform.ratingservice.kafka.RatingEventSpool;
+import com.courseplatform.ratingservice.kafka.RatingOutboxRelay;
+import com.courseplatform.ratingservice.kafka.RatingSpoolReplayer;
+import com.courseplatform.ratingservice.repository.CourseRatingStatsRepository;
+import com.courseplatform.ratingservice.repository.OutboxEventRepository;
+import com.courseplatform.ratingservice.repository.RatingBatchRepository;
 import com.courseplatform.ratingservice.repository.RatingRepository;
+import com.courseplatform.ratingservice.service.CourseRatingPropagator;
+import com.courseplatform.ratingservice.service.CourseRatingReconciler;
+import com.courseplatform.ratingservice.service.CourseRatingStatsService;
+import com.courseplatform.ratingservice.service.CourseRatingWindowStats;
+import com.courseplatform.ratingservice.service.IdempotencyStore;
+import com.courseplatform.ratingservice.service.RatingDuplicateFilter;
+import com.courseplatform.ratingservice.service.RatingColumnarWriter;
+import com.courseplatform.ratingservice.service.RatingExportService;
+import com.courseplatform.ratingservice.service.RatingIngestBuffer;
+import com.courseplatform.ratingservice.service.RatingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.errors.SerializationException;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @ActiveProfiles("test")
 @Transactional
 class RatingServiceApplicationTests {
     
-    @Autowired
+    @SpyBean
     private RatingRepository ratingRepository;
     
+    @Autowired
+    private CourseRatingStatsRepository courseRatingStatsRepository;
+    
+    @Autowired
+    private RatingService ratingService;
+    
+    @Autowired
+    private CourseRatingStatsService courseRatingStatsService;
+    
+    @Autowired
+    private CourseRatingPropagator courseRatingPropagator;
+    
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Autowired
+    private RatingOutboxRelay ratingOutboxRelay;
+    
+    @Autowired
+    private CourseRatingWindowStats courseRatingWindowStats;
+    
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    
+    @Autowired
+    private RatingExportService ratingExportService;
+    
+    @Autowired
+    private RatingEventSpool ratingEventSpool;
+    
+    @Autowired
+    private RatingSpoolReplayer ratingSpoolReplayer;
+    
+    @Autowired
+    private CourseRatingReconciler courseRatingReconciler;
+    
+    @Autowired
+    private RatingDuplicateFilter ratingDuplicateFilter;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+    
+    @SpyBean
+    private RatingBatchRepository ratingBatchRepository;
+    
+    @MockBean
+    private KafkaProducerService kafkaProducerService;
+    
+    @MockBean
+    private RestTemplate restTemplate;
+    
     @BeforeEach
     void setUp() {
         ratingRepository.deleteAll();
@@ -127,4 +278,713 @@ class RatingServiceApplicationTests {
         assertTrue(ratingRepository.existsByUserIdAndCourseId(1L, 1L));
         assertFalse(ratingRepository.existsByUserIdAndCourseId(1L, 2L));
     }
+    
+    @Test
+    void testCreateRatingsBatch() {
+        ratingRepository.save(Rating.builder()
+                .userId(1L)
+                .courseId(1L)
+                .rating(4)
+                .build());
+        
+        List<BatchRatingItemResult> results = ratingService.createRatings(List.of(
+                Rating.builder().userId(2L).courseId(1L).rating(5).build(),
+                Rating.builder().userId(1L).courseId(1L).rating(3).build(),
+                Rating.builder().userId(3L).courseId(1L).rating(7).build(),
+                Rating.builder().userId(2L).courseId(1L).rating(2).build(),
+                Rating.builder().userId(2L).courseId(2L).rating(4).comment("Good").build()
+        ));
+        
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getRatingId());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertTrue(results.get(4).isSuccess());
+        
+        assertEquals(2, ratingRepository.findByCourseId(1L).size());
+        assertEquals("Good", ratingRepository.findByUserIdAndCourseId(2L, 2L).orElseThrow().getComment());
+    }
+    
+    @Test
+    void testCourseRatingStatsMaintainedIncrementally() {
+        ratingService.createRating(1L, 10L, 5, null);
+        ratingService.createRating(2L, 10L, 3, null);
+        ratingService.createRatings(List.of(
+                Rating.builder().userId(3L).courseId(10L).rating(1).build(),
+                Rating.builder().userId(4L).courseId(10L).rating(3).build()
+        ));
+        ratingService.updateRating(1L, 10L, 4, "Changed my mind");
+        ratingService.deleteRating(3L, 10L);
+        
+        assertEquals(3, ratingService.getTotalRatings(10L));
+        assertEquals(ratingRepository.getAverageRatingByCourseId(10L), ratingService.getAverageRating(10L));
+        assertEquals(0, ratingService.getTotalRatings(11L));
+        assertEquals(0.0, ratingService.getAverageRating(11L));
+        
+        CourseRatingStats stats = courseRatingStatsRepository.findById(10L).orElseThrow();
+        assertEquals(0L, stats.getCount1());
+        assertEquals(2L, stats.getCount3());
+        assertEquals(1L, stats.getCount4());
+        assertEquals(0L, stats.getCount5());
+    }
+    
+    @Test
+    void testStatsBackfillFillsOnlyCoursesWithoutStats() {
+        // Written around the service, as ratings predating the stats table were
+        ratingRepository.saveAndFlush(Rating.builder().userId(1L).courseId(12L).rating(2).build());
+        ratingRepository.saveAndFlush(Rating.builder().userId(1L).courseId(13L).rating(4).build());
+        ratingRepository.saveAndFlush(Rating.builder().userId(2L).courseId(13L).rating(5).build());
+        // The first write through the service seeds the row from the ratings already there, its own included
+        ratingService.createRating(2L, 12L, 5, null);
+        CourseRatingStats seeded = courseRatingStatsRepository.findById(12L).orElseThrow();
+        assertEquals(2L, seeded.getRatingCount());
+        assertEquals(7L, seeded.getRatingSum());
+        assertTrue(courseRatingStatsRepository.findById(13L).isEmpty());
+        
+        assertEquals(1, courseRatingStatsService.backfillMissing());
+        
+        assertEquals(2L, courseRatingStatsRepository.findById(12L).orElseThrow().getRatingCount());
+        CourseRatingStats backfilled = courseRatingStatsRepository.findById(13L).orElseThrow();
+        assertEquals(2L, backfilled.getRatingCount());
+        assertEquals(9L, backfilled.getRatingSum());
+        assertEquals(1L, backfilled.getCount5());
+        assertEquals(0, courseRatingStatsService.backfillMissing());
+        assertEquals(2L, courseRatingStatsRepository.findById(13L).orElseThrow().getRatingCount());
+    }
+    
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testCourseRatingPropagationCoalescesUpdates() {
+        courseRatingPropagator.markDirty(20L);
+        courseRatingPropagator.markDirty(20L);
+        courseRatingPropagator.markDirty(20L);
+        
+        verify(restTemplate, timeout(2000).times(1)).put(contains("/api/courses/20/rating"), isNull());
+        assertEquals(0, courseRatingPropagator.getQueueDepth());
+    }
+    
+    @Test
+    void testRatingEventsGoThroughOutbox() {
+        ratingService.createRating(1L, 30L, 5, "Great");
+        ratingService.createRatings(List.of(
+                Rating.builder().userId(2L).courseId(30L).rating(4).build(),
+                Rating.builder().userId(3L).courseId(31L).rating(3).build()
+        ));
+        
+        verifyNoInteractions(kafkaProducerService);
+        assertEquals(3, outboxEventRepository.countBySentAtIsNull());
+        
+        when(kafkaProducerService.sendRatingEvents(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        
+        // A failed publish leaves the rows unsent but claimed, so no other relay takes them until the claim runs out
+        when(kafkaProducerService.publishOrSpool(anyList(), anyLong())).thenThrow(new RuntimeException("Spool full"));
+        assertThrows(RuntimeException.class, () -> ratingOutboxRelay.relayBatch());
+        assertEquals(3, outboxEventRepository.countBySentAtIsNull());
+        assertEquals(0, ratingOutboxRelay.relayBatch());
+        
+        List<OutboxEvent> claimed = outboxEventRepository.findAll();
+        claimed.forEach(event -> event.setClaimedUntil(LocalDateTime.now().minusSeconds(1)));
+        outboxEventRepository.saveAll(claimed);
+        doReturn(0).when(kafkaProducerService).publishOrSpool(anyList(), anyLong());
+        assertEquals(3, ratingOutboxRelay.relayBatch());
+        assertEquals(0, outboxEventRepository.countBySentAtIsNull());
+        assertEquals(0, ratingOutboxRelay.relayBatch());
+        
+        assertThrows(RuntimeException.class, () -> ratingService.createRating(4L, 30L, 5, "x".repeat(10_001)));
+    }
+    
+    @Test
+    void testRatingEventBinaryCodec() {
+        RatingEvent event = RatingEvent.builder()
+                .id(42L)
+                .userId(7L)
+                .courseId(9L)
+                .rating(4)
+                .comment("Отличный курс")
+                .timestamp(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000))
+                .build();
+        
+        byte[] payload = new RatingEventSerializer().serialize("ratings", event);
+        
+        assertTrue(RatingEventCodec.isBinary(payload));
+        assertEquals(RatingEventCodec.VERSION, payload[1]);
+        assertEquals(event, new RatingEventDeserializer().deserialize("ratings", payload));
+        
+        RatingEvent withoutOptionals = RatingEvent.builder().userId(1L).courseId(2L).rating(5).build();
+        assertEquals(withoutOptionals, RatingEventCodec.decode(RatingEventCodec.encode(withoutOptionals)));
+        
+        // Cut inside the comment, and a comment length past the end or below -1
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> RatingEventCodec.decode(truncated));
+        int commentLengthAt = 3 + 8 + 8 + 8 + 1 + 8;
+        byte[] corrupt = payload.clone();
+        ByteBuffer.wrap(corrupt).putInt(commentLengthAt, -7);
+        assertThrows(IllegalArgumentException.class, () -> RatingEventCodec.decode(corrupt));
+        ByteBuffer.wrap(corrupt).putInt(commentLengthAt, Integer.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> RatingEventCodec.decode(corrupt));
+        assertThrows(SerializationException.class, () -> new RatingEventDeserializer().deserialize("ratings", truncated));
+        
+        byte[] legacyJson = ("{\"id\":42,\"userId\":7,\"courseId\":9,\"rating\":4," +
+                "\"comment\":\"Отличный курс\",\"timestamp\":\"2024-03-01T12:30:15.123\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        assertFalse(RatingEventCodec.isBinary(legacyJson));
+        assertEquals(event, new RatingEventDeserializer().deserialize("ratings", legacyJson));
+    }
+    
+    @Test
+    void testKeysetPaginationAndStreaming() {
+        for (long userId = 1; userId <= 5; userId++) {
+            ratingRepository.save(Rating.builder()
+                    .userId(userId)
+                    .courseId(40L)
+                    .rating(4)
+                    .comment("Comment " + userId)
+                    .build());
+        }
+        
+        RatingPage<Rating> first = ratingService.getRatingsPageByCourseId(40L, null, 2);
+        assertEquals(2, first.getItems().size());
+        assertNotNull(first.getNextCursor());
+        
+        RatingPage<Rating> second = ratingService.getRatingsPageByCourseId(40L, first.getNextCursor(), 2);
+        assertEquals(2, second.getItems().size());
+        assertTrue(second.getItems().get(0).getId() > first.getNextCursor());
+        
+        RatingPage<Rating> last = ratingService.getRatingsPageByCourseId(40L, second.getNextCursor(), 2);
+        assertEquals(1, last.getItems().size());
+        assertNull(last.getNextCursor());
+        
+        assertThrows(RuntimeException.class, () -> ratingService.getRatingsPageByCourseId(40L, null, 0));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ratingService.streamRatingsByCourseId(40L, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].contains("\"comment\":\"Comment 1\""));
+    }
+    
+    @Test
+    void testCompactProjectionOmitsComments() {
+        String longComment = "Very detailed review. ".repeat(50);
+        for (long userId = 1; userId <= 3; userId++) {
+            ratingRepository.save(Rating.builder()
+                    .userId(userId)
+                    .courseId(50L)
+                    .rating(5)
+                    .comment(longComment)
+                    .build());
+        }
+        
+        RatingPage<RatingSummary> page = ratingService.getRatingSummariesByCourseId(50L, null, 2);
+        assertEquals(2, page.getItems().size());
+        assertEquals(50L, page.getItems().get(0).courseId());
+        assertNotNull(page.getItems().get(0).updatedAt());
+        assertNotNull(page.getNextCursor());
+        
+        ByteArrayOutputStream full = new ByteArrayOutputStream();
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        ratingService.streamRatingsByCourseId(50L, full);
+        ratingService.streamRatingSummariesByCourseId(50L, compact);
+        assertFalse(compact.toString(StandardCharsets.UTF_8).contains("comment"));
+        assertTrue(compact.size() * 5 < full.size());
+        
+        assertEquals(longComment, ratingService.getRatingComment(1L, 50L));
+        assertThrows(RuntimeException.class, () -> ratingService.getRatingComment(9L, 50L));
+    }
+    
+    @Test
+    void testUserRatingCacheInvalidatedOnWrites() {
+        ratingService.createRating(60L, 1L, 3, "First");
+        ratingService.createRating(60L, 2L, 4, null);
+        
+        double hitsBefore = meterRegistry.get("cache.gets").tags("cache", "userRatings", "result", "hit")
+                .functionCounter().count();
+        
+        assertEquals(3, ratingService.getRatingByUserAndCourse(60L, 1L).getRating());
+        assertEquals(4, ratingService.getRatingByUserAndCourse(60L, 2L).getRating());
+        assertEquals(2, ratingService.getRatingsPageByUserId(60L, null, null).getItems().size());
+        assertThrows(RuntimeException.class, () -> ratingService.getRatingByUserAndCourse(60L, 3L));
+        
+        double hitsAfter = meterRegistry.get("cache.gets").tags("cache", "userRatings", "result", "hit")
+                .functionCounter().count();
+        assertEquals(3.0, hitsAfter - hitsBefore);
+        
+        ratingService.updateRating(60L, 1L, 5, "Updated");
+        assertEquals(5, ratingService.getRatingByUserAndCourse(60L, 1L).getRating());
+        
+        ratingService.deleteRating(60L, 2L);
+        assertThrows(RuntimeException.class, () -> ratingService.getRatingByUserAndCourse(60L, 2L));
+        assertEquals(1, ratingService.getRatingSummariesByUserId(60L, null, null).getItems().size());
+        
+        // Over rating.cache.max-ratings-per-user: remembered as too large, then served by the database
+        ratingRepository.saveAll(LongStream.rangeClosed(1, 501)
+                .mapToObj(courseId -> Rating.builder().userId(61L).courseId(courseId).rating(4).build())
+                .toList());
+        assertEquals(4, ratingService.getRatingByUserAndCourse(61L, 501L).getRating());
+        double heavyHitsBefore = meterRegistry.get("cache.gets").tags("cache", "userRatings", "result", "hit")
+                .functionCounter().count();
+        assertEquals(4, ratingService.getRatingByUserAndCourse(61L, 1L).getRating());
+        assertEquals(heavyHitsBefore + 1, meterRegistry.get("cache.gets").tags("cache", "userRatings", "result", "hit")
+                .functionCounter().count());
+    }
+    
+    @Test
+    void testFailedEventsAreSpooledAndReplayed() {
+        long depthBefore = ratingEventSpool.getDepth();
+        List<RatingEvent> events = LongStream.rangeClosed(1, 100)
+                .mapToObj(i -> RatingEvent.builder()
+                        .id(i)
+                        .userId(80L)
+                        .courseId(i)
+                        .rating(4)
+                        .comment("Spooled " + i)
+                        .timestamp(LocalDateTime.of(2024, 3, 1, 12, 0))
+                        .build())
+                .toList();
+        
+        ratingEventSpool.append(events);
+        assertEquals(depthBefore + 100, ratingEventSpool.getDepth());
+        assertTrue(ratingEventSpool.segmentCount() > 1);
+        assertTrue(ratingEventSpool.oldestAgeMillis() >= 0);
+        
+        when(kafkaProducerService.sendRatingEvents(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+        assertThrows(RuntimeException.class, () -> ratingSpoolReplayer.replayBatch());
+        assertEquals(depthBefore + 100, ratingEventSpool.getDepth());
+        
+        when(kafkaProducerService.sendRatingEvents(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        while (ratingSpoolReplayer.replayBatch() > 0) {
+        }
+        
+        assertEquals(0, ratingEventSpool.getDepth());
+        assertEquals(1, ratingEventSpool.segmentCount());
+        assertEquals(0, ratingEventSpool.oldestAgeMillis());
+        verify(kafkaProducerService, atLeastOnce()).sendRatingEvents(argThat(batch -> batch.contains(events.get(99))));
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSpoolKeepsOrderAndSurvivesBadRecords() throws IOException {
+        when(kafkaProducerService.sendRatingEvents(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        while (ratingSpoolReplayer.replayBatch() > 0) {
+        }
+        RatingEvent older = RatingEvent.builder().userId(81L).courseId(1L).rating(2).build();
+        RatingEvent newer = RatingEvent.builder().userId(81L).courseId(1L).rating(5).build();
+        
+        // Bigger than a whole segment (4096 bytes in tests): gets a segment of its own instead of being refused
+        RatingEvent oversized = RatingEvent.builder().userId(81L).courseId(2L).rating(3).comment("x".repeat(6000)).build();
+        ratingEventSpool.append(List.of(older, oversized));
+        assertEquals(2, ratingEventSpool.getDepth());
+        
+        // Nothing goes to Kafka directly while older events are still spooled
+        KafkaTemplate<String, RatingEvent> kafkaTemplate = mock(KafkaTemplate.class);
+        KafkaProducerService producer = new KafkaProducerService(kafkaTemplate, ratingEventSpool);
+        assertEquals(1, producer.publishOrSpool(List.of(newer), 1000));
+        verifyNoInteractions(kafkaTemplate);
+        
+        List<RatingEvent> replayed = new ArrayList<>();
+        RatingEventSpool.Batch batch;
+        while (!(batch = ratingEventSpool.peek(10)).isEmpty()) {
+            replayed.addAll(batch.events());
+            ratingEventSpool.commit(batch);
+        }
+        assertEquals(List.of(older, oversized, newer), replayed);
+        
+        // A record whose length was overwritten ends the segment instead of stopping replay for good
+        ratingEventSpool.append(List.of(older, newer));
+        Path active;
+        try (Stream<Path> files = Files.list(Paths.get("build/rating-spool-test"))) {
+            active = files.max(Comparator.naturalOrder()).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(active, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 4);
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), header.getInt(0));
+        }
+        RatingEventSpool.Batch corrupt = ratingEventSpool.peek(10);
+        assertEquals(2, corrupt.records());
+        assertTrue(corrupt.events().isEmpty());
+        ratingEventSpool.commit(corrupt);
+        assertEquals(0, ratingEventSpool.getDepth());
+    }
+    
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testRollingWindowStats() {
+        try {
+            ratingService.createRating(90L, 90L, 5, null);
+            ratingService.createRating(91L, 90L, 3, null);
+            assertEquals(new CourseRatingWindowStats.WindowTotals(2, 8), courseRatingWindowStats.getTotals(90L, 7));
+            
+            ratingService.updateRating(90L, 90L, 1, "Changed my mind");
+            ratingService.deleteRating(91L, 90L);
+            CourseRatingWindowStats.WindowTotals totals = courseRatingWindowStats.getTotals(90L, 7);
+            assertEquals(1, totals.count());
+            assertEquals(1.0, totals.averageRating());
+            
+            courseRatingWindowStats.rebuild();
+            assertEquals(totals, courseRatingWindowStats.getTotals(90L, 30));
+            assertEquals(new CourseRatingWindowStats.WindowTotals(0, 0), courseRatingWindowStats.getTotals(91L, 7));
+            assertThrows(RuntimeException.class, () -> courseRatingWindowStats.getTotals(90L, 31));
+        } finally {
+            ratingRepository.deleteAll(ratingRepository.findByCourseId(90L));
+            outboxEventRepository.deleteAll();
+            courseRatingStatsRepository.deleteAllById(List.of(90L));
+        }
+    }
+    
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testWindowStatsKeepWritesCommittedDuringRebuild() {
+        try {
+            ratingService.createRating(92L, 92L, 5, null);
+            List<Object[]> snapshot = ratingRepository.sumByCourseAndDaySince(LocalDateTime.now().minusDays(30));
+            // This write commits while the rebuild query runs, so the query result does not have it
+            doAnswer(invocation -> {
+                courseRatingWindowStats.recordAdded(92L, 3);
+                return snapshot;
+            }).when(ratingRepository).sumByCourseAndDaySince(any());
+            
+            courseRatingWindowStats.rebuild();
+            
+            assertEquals(new CourseRatingWindowStats.WindowTotals(2, 8), courseRatingWindowStats.getTotals(92L, 7));
+        } finally {
+            ratingRepository.deleteAll(ratingRepository.findByCourseId(92L));
+            outboxEventRepository.deleteAll();
+            courseRatingStatsRepository.deleteAllById(List.of(92L));
+        }
+    }
+    
+    @Test
+    void testBulkCourseRatingStats() {
+        ratingService.createRating(1L, 100L, 5, null);
+        ratingService.createRating(2L, 100L, 4, null);
+        ratingService.createRating(1L, 101L, 2, null);
+        
+        Map<Long, CourseRatingAggregate> stats = ratingService.getCourseRatingAggregates(List.of(100L, 101L, 102L, 100L));
+        
+        assertEquals(List.of(100L, 101L, 102L), List.copyOf(stats.keySet()));
+        assertEquals(new CourseRatingAggregate(4.5, 2), stats.get(100L));
+        assertEquals(new CourseRatingAggregate(2.0, 1), stats.get(101L));
+        assertEquals(new CourseRatingAggregate(0.0, 0), stats.get(102L));
+        assertTrue(ratingService.getCourseRatingAggregates(List.of()).isEmpty());
+        assertThrows(RuntimeException.class,
+                () -> ratingService.getCourseRatingAggregates(Collections.nCopies(501, 1L)));
+    }
+    
+    @Test
+    void testColumnarExportWithIncrementalMode() throws IOException {
+        for (long userId = 1; userId <= 5; userId++) {
+            ratingRepository.save(Rating.builder()
+                    .userId(userId)
+                    .courseId(110L)
+                    .rating((int) userId)
+                    .comment("Not exported")
+                    .build());
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RatingExportSummary full = ratingExportService.export(null, out);
+        List<RatingSummary> rows = RatingColumnarWriter.readAll(new ByteArrayInputStream(out.toByteArray()));
+        
+        assertEquals(5, full.getRows());
+        assertEquals(5, rows.size());
+        assertEquals(List.of(1, 2, 3, 4, 5), rows.stream().map(RatingSummary::rating).toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), rows.stream().map(RatingSummary::userId).toList());
+        assertTrue(rows.stream().allMatch(row -> row.courseId() == 110L && row.updatedAt() != null));
+        
+        // Rows written just now are inside rating.export.watermark-lag-seconds, so the next delta reads them again
+        LocalDateTime latest = rows.stream().map(RatingSummary::updatedAt).max(Comparator.naturalOrder()).orElseThrow();
+        assertTrue(full.getWatermark().isBefore(latest));
+        assertEquals(5, ratingExportService.export(full.getWatermark(), new ByteArrayOutputStream()).getRows());
+        
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        RatingExportSummary empty = ratingExportService.export(latest.plusSeconds(1), delta);
+        assertEquals(0, empty.getRows());
+        assertNull(empty.getWatermark());
+        assertTrue(RatingColumnarWriter.readAll(new ByteArrayInputStream(delta.toByteArray())).isEmpty());
+    }
+    
+    @Test
+    void testIdempotencyKeyReplaysStoredResponse() {
+        AtomicInteger writes = new AtomicInteger();
+        Supplier<ResponseEntity<RatingEvent>> write = () -> {
+            writes.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(ratingService.createRating(1L, 120L, 5, null));
+        };
+        double hitsBefore = meterRegistry.get("rating.idempotency.requests").tag("result", "hit").counter().count();
+        
+        ResponseEntity<RatingEvent> first = idempotencyStore.execute("retry-1", "POST /api/ratings", List.of(1L, 120L, 5), write);
+        ResponseEntity<RatingEvent> retry = idempotencyStore.execute("retry-1", "POST /api/ratings", List.of(1L, 120L, 5), write);
+        
+        assertEquals(1, writes.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(hitsBefore + 1,
+                meterRegistry.get("rating.idempotency.requests").tag("result", "hit").counter().count());
+        assertThrows(RuntimeException.class,
+                () -> idempotencyStore.execute("retry-1", "POST /api/ratings", List.of(1L, 120L, 4), write));
+        // "Aa" and "BB" share a hashCode, so only an equals check tells these bodies apart
+        assertThrows(RuntimeException.class,
+                () -> idempotencyStore.execute("retry-1", "POST /api/ratings", List.of(1L, 120L, 5, "Aa"), write));
+        idempotencyStore.execute("retry-3", "POST /api/ratings", List.of("Aa"), () -> ResponseEntity.ok("first"));
+        assertThrows(RuntimeException.class,
+                () -> idempotencyStore.execute("retry-3", "POST /api/ratings", List.of("BB"), () -> ResponseEntity.ok("second")));
+        
+        assertThrows(RuntimeException.class, () -> idempotencyStore.execute("retry-2", "PUT /api/ratings", List.of(1L),
+                () -> ResponseEntity.ok(ratingService.updateRating(1L, 121L, 3, null))));
+        ratingService.createRating(1L, 121L, 4, null);
+        ResponseEntity<RatingEvent> afterFailure = idempotencyStore.execute("retry-2", "PUT /api/ratings", List.of(1L),
+                () -> ResponseEntity.ok(ratingService.updateRating(1L, 121L, 3, null)));
+        assertNull(afterFailure.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+        assertEquals(3, afterFailure.getBody().getRating());
+    }
+    
+    @Test
+    void testIdempotencyKeyInProgressReturnsConflict() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<Object>> first = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.execute("slow-1", "DELETE /api/ratings/user/course", List.of(1L, 150L), () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return ResponseEntity.noContent().build();
+                }));
+        started.await();
+        
+        // The retry waits in-flight-wait-ms for the first attempt and then gives up instead of blocking the thread
+        mockMvc.perform(delete("/api/ratings/user/{userId}/course/{courseId}", 1L, 150L)
+                        .header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "slow-1"))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Retry-After", "1"));
+        
+        release.countDown();
+        assertEquals(HttpStatus.NO_CONTENT, first.get().getStatusCode());
+        mockMvc.perform(delete("/api/ratings/user/{userId}/course/{courseId}", 1L, 150L)
+                        .header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "slow-1"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"));
+    }
+    
+    @Test
+    void testUpsertRatingEndpointBranches() throws Exception {
+        // The upsert statement needs PostgreSQL, so its result is stubbed and what the service does with it is checked
+        // Like the real statement, the created branch leaves the row in ratings for the stats seed to count
+        doAnswer(invocation -> {
+            ratingRepository.saveAndFlush(Rating.builder().userId(1L).courseId(140L).rating(4).comment("Good").build());
+            return upsertResult(true, true, null);
+        }).when(ratingBatchRepository).upsert(1L, 140L, 4, "Good");
+        mockMvc.perform(put("/api/ratings/user/{userId}/course/{courseId}", 1L, 140L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"rating\":4,\"comment\":\"Good\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(true));
+        assertEquals(4L, courseRatingStatsRepository.findById(140L).orElseThrow().getRatingSum());
+        assertEquals(1, outboxEventRepository.countBySentAtIsNull());
+        
+        doReturn(upsertResult(false, true, 4))
+                .when(ratingBatchRepository).upsert(1L, 140L, 2, "Good");
+        mockMvc.perform(put("/api/ratings/user/{userId}/course/{courseId}", 1L, 140L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"rating\":2,\"comment\":\"Good\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed").value(true));
+        CourseRatingStats changed = courseRatingStatsRepository.findById(140L).orElseThrow();
+        assertEquals(1L, changed.getRatingCount());
+        assertEquals(0L, changed.getCount4());
+        assertEquals(1L, changed.getCount2());
+        assertEquals(2, outboxEventRepository.countBySentAtIsNull());
+        
+        doReturn(upsertResult(false, false, null))
+                .when(ratingBatchRepository).upsert(1L, 140L, 2, "Same");
+        mockMvc.perform(put("/api/ratings/user/{userId}/course/{courseId}", 1L, 140L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"rating\":2,\"comment\":\"Same\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed").value(false));
+        assertEquals(2L, courseRatingStatsRepository.findById(140L).orElseThrow().getRatingSum());
+        assertEquals(2, outboxEventRepository.countBySentAtIsNull());
+        
+        mockMvc.perform(put("/api/ratings/user/{userId}/course/{courseId}", 1L, 140L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"rating\":6}"))
+                .andExpect(status().isBadRequest());
+        verify(ratingBatchRepository, never()).upsert(any(), any(), eq(6), any());
+        
+        // Updated, but the row appeared after the snapshot so there is no previous rating to take out
+        doReturn(upsertResult(false, true, null))
+                .when(ratingBatchRepository).upsert(2L, 140L, 5, null);
+        RuntimeException race = assertThrows(RuntimeException.class,
+                () -> ratingService.upsertRating(2L, 140L, 5, null));
+        assertEquals("Concurrent rating update, please retry", race.getMessage());
+    }
+    
+    @Test
+    void testScheduledJobsDoNotShareOneThread() {
+        // Six @Scheduled jobs; with Spring's default single thread the reconcile would hold up the outbox relay
+        assertEquals(6, taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReconciliationPushesOnlyChangedCourses() {
+        for (long courseId = 130; courseId <= 132; courseId++) {
+            ratingRepository.save(Rating.builder().userId(1L).courseId(courseId).rating(5).build());
+            ratingRepository.save(Rating.builder().userId(2L).courseId(courseId).rating(4).build());
+        }
+        String url = "http://localhost:8082/api/courses/ratings";
+        ArgumentCaptor<List<CourseRatingUpdate>> pushed = ArgumentCaptor.forClass(List.class);
+        clearInvocations(restTemplate);
+        
+        RatingReconciliationReport first = courseRatingReconciler.reconcile();
+        
+        verify(restTemplate, atLeastOnce()).put(eq(url), pushed.capture());
+        List<CourseRatingUpdate> updates = pushed.getAllValues().stream().flatMap(List::stream).toList();
+        assertTrue(pushed.getAllValues().stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(6, first.getRatingsScanned());
+        assertEquals(3, first.getCoursesScanned());
+        assertTrue(updates.contains(new CourseRatingUpdate(130L, 4.5, 2)));
+        assertTrue(updates.contains(new CourseRatingUpdate(132L, 4.5, 2)));
+        // The ratings above bypassed the service, so their stats rows were missing and get rebuilt
+        assertEquals(3, first.getStatsRebuilt());
+        CourseRatingStats rebuilt = courseRatingStatsRepository.findById(130L).orElseThrow();
+        assertEquals(2L, rebuilt.getRatingCount());
+        assertEquals(9L, rebuilt.getRatingSum());
+        assertEquals(1L, rebuilt.getCount4());
+        assertEquals(1L, rebuilt.getCount5());
+        
+        RatingReconciliationReport unchanged = courseRatingReconciler.reconcile();
+        assertEquals(0, unchanged.getCoursesCorrected());
+        assertEquals(0, unchanged.getStatsRebuilt());
+        
+        Rating changed = ratingRepository.findByUserIdAndCourseId(2L, 131L).orElseThrow();
+        changed.setRating(1);
+        ratingRepository.saveAndFlush(changed);
+        clearInvocations(restTemplate);
+        
+        RatingReconciliationReport corrected = courseRatingReconciler.reconcile();
+        assertEquals(1, corrected.getCoursesCorrected());
+        assertEquals(0, corrected.getCoursesFailed());
+        verify(restTemplate).put(url, List.of(new CourseRatingUpdate(131L, 3.0, 2)));
+        assertEquals(1, corrected.getStatsRebuilt());
+        CourseRatingStats recounted = courseRatingStatsRepository.findById(131L).orElseThrow();
+        assertEquals(6L, recounted.getRatingSum());
+        assertEquals(0L, recounted.getCount4());
+        assertEquals(1L, recounted.getCount1());
+        
+        // A stats row still counting ratings that are all gone is zeroed as well
+        courseRatingStatsRepository.saveAndFlush(CourseRatingStats.builder()
+                .courseId(133L).ratingSum(5L).ratingCount(1L)
+                .count1(0L).count2(0L).count3(0L).count4(0L).count5(1L).build());
+        RatingReconciliationReport orphaned = courseRatingReconciler.reconcile();
+        assertEquals(1, orphaned.getStatsRebuilt());
+        CourseRatingStats zeroed = courseRatingStatsRepository.findById(133L).orElseThrow();
+        assertEquals(0L, zeroed.getRatingCount());
+        assertEquals(0L, zeroed.getCount5());
+    }
+    
+    @Test
+    void testDuplicateFilterSkipsQueryForNewPairs() {
+        for (long userId = 1; userId <= 50; userId++) {
+            ratingRepository.save(Rating.builder().userId(userId).courseId(150L).rating(4).build());
+        }
+        ratingDuplicateFilter.rebuild();
+        RatingDuplicateFilterStats stats = ratingDuplicateFilter.getStats();
+        
+        assertTrue(stats.isReady());
+        assertEquals(50, stats.getLastRebuildRows());
+        assertEquals(100_000, stats.getCapacity());
+        assertTrue(stats.getMemoryBytes() > 0 && stats.getMemoryBytes() < 200_000);
+        assertTrue(stats.getExpectedFalsePositiveRate() < 0.01);
+        
+        AtomicInteger queries = new AtomicInteger();
+        for (long userId = 1; userId <= 50; userId++) {
+            assertTrue(ratingDuplicateFilter.exists(userId, 150L, () -> queries.incrementAndGet() > 0));
+        }
+        assertEquals(50, queries.get());
+        for (long userId = 51; userId <= 1050; userId++) {
+            ratingDuplicateFilter.exists(userId, 150L, () -> queries.incrementAndGet() < 0);
+        }
+        // At most a few of the 1000 new pairs should have needed the database
+        assertTrue(queries.get() - 50 <= 10);
+        
+        ratingService.createRating(51L, 150L, 5, null);
+        assertThrows(RuntimeException.class, () -> ratingService.createRating(51L, 150L, 3, null));
+        ratingService.createRatings(List.of(Rating.builder().userId(52L).courseId(150L).rating(2).build()));
+        assertTrue(ratingDuplicateFilter.exists(52L, 150L, () -> true));
+        
+        // A row the filter never saw, as if written by another instance, still fails as a duplicate
+        ratingRepository.save(Rating.builder().userId(60L).courseId(151L).rating(3).build());
+        RuntimeException duplicate = assertThrows(RuntimeException.class,
+                () -> ratingService.createRating(60L, 151L, 4, null));
+        assertEquals("User has already rated this course", duplicate.getMessage());
+    }
+    
+    // The group-commit writer only runs in async mode, which gets its own context so other tests stay on sync
+    @Nested
+    @TestPropertySource(properties = "rating.ingest.mode=async")
+    class AsyncIngestion {
+        
+        @Autowired
+        private RatingIngestBuffer ratingIngestBuffer;
+        
+        // The writer's metrics register in this context, not the enclosing one
+        @Autowired
+        private MeterRegistry meterRegistry;
+        
+        @Test
+        @Transactional(propagation = Propagation.NOT_SUPPORTED)
+        void testAsyncIngestionGroupCommits() throws InterruptedException {
+            try {
+                RatingIngestStatus first = ratingIngestBuffer.submit(70L, 70L, 5, "Fast");
+                RatingIngestStatus second = ratingIngestBuffer.submit(70L, 71L, 4, null);
+                RatingIngestStatus duplicate = ratingIngestBuffer.submit(70L, 70L, 3, null);
+                
+                assertEquals(RatingIngestStatus.State.PENDING, first.getState());
+                assertNotNull(first.getTrackingId());
+                assertThrows(RuntimeException.class, () -> ratingIngestBuffer.submit(70L, 72L, 6, null));
+                
+                for (int i = 0; i < 50 && ratingIngestBuffer.getStatus(duplicate.getTrackingId()).getState()
+                        == RatingIngestStatus.State.PENDING; i++) {
+                    Thread.sleep(100);
+                }
+                
+                RatingIngestStatus committed = ratingIngestBuffer.getStatus(first.getTrackingId());
+                assertEquals(RatingIngestStatus.State.COMMITTED, committed.getState());
+                assertNotNull(committed.getRatingId());
+                assertEquals(RatingIngestStatus.State.COMMITTED,
+                        ratingIngestBuffer.getStatus(second.getTrackingId()).getState());
+                RatingIngestStatus rejected = ratingIngestBuffer.getStatus(duplicate.getTrackingId());
+                assertEquals(RatingIngestStatus.State.FAILED, rejected.getState());
+                assertNotNull(rejected.getError());
+                
+                assertEquals(2, ratingRepository.findByUserId(70L).size());
+                assertEquals(1, ratingService.getTotalRatings(70L));
+                assertTrue(meterRegistry.get("rating.ingest.flush.size").summary().count() >= 1);
+                assertThrows(RuntimeException.class, () -> ratingIngestBuffer.getStatus("unknown"));
+            } finally {
+                // This test commits, so clean up what the writer persisted
+                ratingRepository.deleteAll(ratingRepository.findByUserId(70L));
+                outboxEventRepository.deleteAll();
+                courseRatingStatsRepository.deleteAllById(List.of(70L, 71L));
+            }
+        }
+    }
+    
+    private static RatingUpsertResult upsertResult(boolean created, boolean changed, Integer previousRating) {
+        return RatingUpsertResult.builder()
+                .ratingId(200L)
+                .created(created)
+                .changed(changed)
+                .previousRating(previousRating)
+                .previousUpdatedAt(previousRating != null ? LocalDateTime.now().minusMinutes(1) : null)
+                .build();
+    }
 }
@@ -20,6 +20,11 @@ val exposedVersion = "0.45.0"
 val logbackVersion = "1.4.14"
 
 dependencies {
+    // Only the RatingEvent DTO and codec; common's Spring dependencies are not needed here
+    implementation(project(":common")) {
+        isTransitive = false
+    }
+
     // Ktor Server
     implementation("io.ktor:ktor-server-core:$ktorVersion")
     implementation("io.ktor:ktor-server-netty:$ktorVersion")
@@ -1 +0,0 @@
-rootProject.name = "recommendation-service"
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.courseplatform.recommendationservice.kafka
 
+import com.courseplatform.common.kafka.RatingEventCodec
 import com.courseplatform.recommendationservice.model.RatingEventDTO
 import com.courseplatform.recommendationservice.service.RecommendationService
 import com.google.gson.Gson
 import kotlinx.coroutines.*
 import org.apache.kafka.clients.consumer.ConsumerConfig
 import org.apache.kafka.clients.consumer.KafkaConsumer
+import org.apache.kafka.common.serialization.ByteArrayDeserializer
 import org.apache.kafka.common.serialization.StringDeserializer
 import org.slf4j.LoggerFactory
 import java.time.Duration
@@ -19,16 +21,16 @@ class RatingEventConsumer(
 ) {
     private val logger = LoggerFactory.getLogger(RatingEventConsumer::class.java)
     private val gson = Gson()
-    private var consumer: KafkaConsumer<String, String>? = null
+    private var consumer: KafkaConsumer<String, ByteArray>? = null
     private var running = false
     private var job: Job? = null
     
-    private fun createConsumer(): KafkaConsumer<String, String> {
+    private fun createConsumer(): KafkaConsumer<String, ByteArray> {
         val props = Properties().apply {
             put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers)
             put(ConsumerConfig.GROUP_ID_CONFIG, groupId)
             put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer::class.java.name)
-            put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer::class.java.name)
+            put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer::class.java.name)
             put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest")
             put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "true")
             put(ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, "1000")
@@ -49,8 +51,8 @@ class RatingEventConsumer(
                         val records = consumer?.poll(Duration.ofMillis(1000))
                         records?.forEach { record ->
                             try {
-                                logger.debug("Received message: key=${record.key()}, value=${record.value()}")
-                                val event = gson.fromJson(record.value(), RatingEventDTO::class.java)
+                                logger.debug("Received message: key=${record.key()}, size=${record.value().size}")
+                                val event = parseEvent(record.value())
                                 logger.info("Processing rating event: userId=${event.userId}, courseId=${event.courseId}, rating=${event.rating}")
                                 recommendationService.processRatingEvent(event)
                             } catch (e: Exception) {
@@ -73,6 +75,22 @@ class RatingEventConsumer(
         }
     }
     
+    // Binary RatingEventCodec payloads, with JSON kept for messages produced before the switch
+    private fun parseEvent(payload: ByteArray): RatingEventDTO {
+        if (!RatingEventCodec.isBinary(payload)) {
+            return gson.fromJson(String(payload, Charsets.UTF_8), RatingEventDTO::class.java)
+        }
+        val event = RatingEventCodec.decode(payload)
+        return RatingEventDTO(
+            id = event.id,
+            userId = event.userId,
+            courseId = event.courseId,
+            rating = event.rating,
+            comment = event.comment,
+            timestamp = event.timestamp?.toString()
+        )
+    }
+    
     fun stop() {
         running = false
         job?.cancel()
@@ -71,6 +71,15 @@ data class CourseDTO(
     val totalRatings: Int? = null
 )
 
+// Sparse course-service catalog row (fields=id,category,averageRating,totalRatings)
+@Serializable
+data class CourseCatalogEntry(
+    val id: Long,
+    val category: String,
+    val averageRating: Double? = null,
+    val totalRatings: Int? = null
+)
+
 @Serializable
 data class UserPreference(
     val userId: Long,
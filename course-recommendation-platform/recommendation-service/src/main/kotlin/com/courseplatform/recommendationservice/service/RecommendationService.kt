@@ -120,10 +120,21 @@ class RecommendationService(
         try {
             withContext(Dispatchers.IO) {
                 logger.info("Fetching courses from course service: $courseServiceUrl")
-                val response = httpClient.get("$courseServiceUrl/api/courses")
-                
-                if (response.status == HttpStatusCode.OK) {
-                    val courses: List<CourseDTO> = response.body()
+                // Only the columns the category cache needs, one keyset page at a time
+                var after: String? = null
+                var cached = 0
+                do {
+                    val response = httpClient.get("$courseServiceUrl/api/courses") {
+                        parameter("fields", "id,category,averageRating,totalRatings")
+                        parameter("limit", COURSE_PAGE_SIZE)
+                        after?.let { parameter("after", it) }
+                    }
+                    if (response.status != HttpStatusCode.OK) {
+                        logger.warn("Course service returned ${response.status} while fetching courses")
+                        break
+                    }
+                    
+                    val courses: List<CourseCatalogEntry> = response.body()
                     courses.forEach { course ->
                         courseCategoryRepository.saveOrUpdateCourseCategory(
                             courseId = course.id,
@@ -132,8 +143,10 @@ class RecommendationService(
                             totalRatings = course.totalRatings ?: 0
                         )
                     }
-                    logger.info("Cached ${courses.size} courses from course service")
-                }
+                    cached += courses.size
+                    after = response.headers[NEXT_CURSOR_HEADER]
+                } while (after != null)
+                logger.info("Cached $cached courses from course service")
             }
         } catch (e: Exception) {
             logger.error("Error fetching courses: ${e.message}", e)
@@ -157,4 +170,9 @@ class RecommendationService(
     private fun calculateScore(rating: Double, categoryWeight: Double): Double {
         return (rating / 5.0) * 0.6 + (categoryWeight / 10.0) * 0.4
     }
+    
+    companion object {
+        private const val COURSE_PAGE_SIZE = 1000
+        private const val NEXT_CURSOR_HEADER = "X-Next-Cursor"
+    }
 }